@@ -0,0 +1,17 @@
+#!/usr/bin/env bash
+
+# Builds the benchmarks and runs them with allocation profiling, recording
+# the results as benchmarks/results/NAME.json (default: baseline) so a
+# later run can be compared against them. Any further arguments go to JMH,
+# for example a benchmark name or -p lines=10000 to run one size only.
+#
+#   benchmarks/bench.sh                       records the baseline
+#   benchmarks/bench.sh after-change Server   runs ServerBenchmark only
+
+set -e
+cd "$(dirname "$0")"
+name=${1:-baseline}
+shift || true
+mvn -B -q -f ../pom.xml package
+mkdir -p results
+java -jar target/benchmarks.jar -prof gc -rf json -rff "results/$name.json" "$@"
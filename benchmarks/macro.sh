@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+
+# Runs Main end to end on a generated log and compares the medians with
+# the recorded baseline, exiting with status 1 on a regression. The log is
+# generated once per size and kept under benchmarks/logs.
+#
+#   benchmarks/macro.sh SIZE [NAME] [-- MAIN OPTIONS]
+#
+#   benchmarks/macro.sh 1G baseline          records results/macro-1G-baseline.properties
+#   benchmarks/macro.sh 1G after -- --mmap   compares an --mmap run against it
+#
+# GEN_OPTS passes extra LogGenerator options, e.g. GEN_OPTS="--days=7".
+
+set -e
+cd "$(dirname "$0")"
+size=${1:-100M}
+name=${2:-baseline}
+shift 2 || shift $#
+mvn -B -q -f ../pom.xml package
+mkdir -p logs results
+log=logs/log-$size.txt
+if [ ! -f "$log" ]; then
+	java -cp target/benchmarks.jar edu.upenn.sas.acost.insightchallenge.LogGenerator \
+		--out="$log" --size="$size" $GEN_OPTS
+fi
+baseline=results/macro-$size-baseline.properties
+if [ "$name" = baseline ] || [ ! -f "$baseline" ]; then
+	compare=
+else
+	compare=--baseline=$baseline
+fi
+java -cp target/benchmarks.jar edu.upenn.sas.acost.insightchallenge.MacroBenchmark \
+	--log="$log" --results="results/macro-$size-$name.properties" $compare "$@"
@@ -0,0 +1,64 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * BenchmarkData class: builds the synthetic traffic the benchmarks run on,
+ * with a LogGenerator spreading the lines about four to a second. The same
+ * seed always gives the same lines.
+ *
+ * Method Name - Description : Runtime
+ * lines       - returns the generated lines                         : O(n + h + r), where n is the number of lines
+ * toBuffer    - packs lines into one byte buffer and records where  : O(b), where b is the number of bytes
+ *               each one starts
+ * parseAll    - parses lines into their hosts and Requests, with     : O(b)
+ *               separate strings for every line as a real run has
+ ******************************/
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+final class BenchmarkData {
+	private BenchmarkData() {
+	}
+
+	public static String[] lines(int count, int hosts, int resources, double skew, double loginShare,
+			int loginBursts, long seed) {
+		LogGenerator generator = new LogGenerator(hosts, resources, skew, seed);
+		generator.setSpan(Math.max(1, count / 4));
+		generator.setLoginShare(loginShare);
+		generator.setLoginBursts(loginBursts);
+		return generator.lines(count);
+	}
+
+	public static ByteBuffer toBuffer(String[] lines, int[] starts) {
+		int size = 0;
+		for (String line : lines) {
+			size += line.length() + 1;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		for (int i = 0; i < lines.length; i++) {
+			starts[i] = buffer.position();
+			buffer.put(lines[i].getBytes(StandardCharsets.ISO_8859_1));
+			buffer.put((byte) '\n');
+		}
+		return buffer;
+	}
+
+	public static Request[] parseAll(String[] lines, String[] hosts) {
+		int[] starts = new int[lines.length];
+		ByteBuffer buffer = toBuffer(lines, starts);
+		LogLineParser parser = new LogLineParser();
+		ParsedLine parsed = new ParsedLine();
+		Request[] requests = new Request[lines.length];
+		for (int i = 0; i < lines.length; i++) {
+			int end = starts[i] + lines[i].length();
+			if (!parser.parse(buffer, starts[i], end, parsed)) {
+				throw new IllegalStateException("generated a malformed line: " + lines[i]);
+			}
+			hosts[i] = parsed.getHost();
+			requests[i] = parsed.toRequest();
+		}
+		return requests;
+	}
+}
@@ -0,0 +1,357 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LogGenerator class: writes synthetic logs in the NASA format that
+ * LogLineParser reads, of any size from a few lines to tens of GB, in
+ * time order and in constant memory. Hosts and resources are drawn from
+ * Zipf distributions of the given skew. The lines cover the given span of
+ * time, by default one day, at an even base rate with these on top:
+ *
+ *   bursts       - peaks of burstLength seconds at random times, where
+ *                  lines come burstFactor times as fast
+ *   login share  - background POSTs to /login from a few hosts, most of
+ *                  them successful
+ *   login bursts - attacks at random times, each from its own host: three
+ *                  to six 401s on /login a few seconds apart, so the host
+ *                  is blocked, then requests every few seconds that land
+ *                  in blocked.txt
+ *
+ * The span is met closely but not exactly, since the number of lines a
+ * size holds is only estimated from the lines written so far. The same
+ * seed and settings always give the same log.
+ *
+ * Usage: LogGenerator --out=FILE [--size=N[K|M|G]] [--hosts=N]
+ *        [--resources=N] [--skew=S] [--days=D] [--bursts=K]
+ *        [--burst-factor=F] [--burst-length=SECONDS] [--login-share=S]
+ *        [--login-bursts=K] [--seed=N]
+ *
+ * Method Name - Description : Runtime
+ * main        - writes a log as set by the command line arguments   : O(b), where b is the number of bytes
+ * write       - writes lines until about targetBytes are written    : O(b)
+ *               and returns the number of lines
+ * lines       - returns count lines as strings                      : O(n), where n is the number of lines
+ * appendLine  - private helper that appends the next line            : O(k), where k is the length of the line
+ * plan        - private helper that sets the time step so the rest  : O(u), where u is the number of bursts
+ *               of the lines fill the rest of the span
+ * advance     - private helper that moves time on by one line        : O(1) amortized
+ * parseSize   - private helper that reads a size with a K, M or G    : O(1)
+ *               suffix
+ ******************************/
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+final class LogGenerator {
+	// 01/Jul/1995:00:00:00 -0400, where the NASA log starts
+	private static final long START = 804571200L;
+	private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter
+			.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US).withZone(ZoneOffset.ofHours(-4));
+	private static final int DAY = 86400;
+	private static final int LOGIN_HOSTS = 64;
+	private static final int[] STATUSES = {200, 200, 200, 200, 200, 200, 304, 304, 302, 404};
+	private static final int REPLAN_LINES = 1 << 16;
+	private Random random;
+	private Zipf hosts;
+	private Zipf resources;
+	private long span;
+	private int burstCount;
+	private double burstFactor;
+	private int burstLength;
+	private double loginShare;
+	private int loginBurstCount;
+	// Generation state
+	private long[] burstStarts;
+	private double[] attackTimes;
+	private int nextAttack;
+	private List<Attack> attacks;
+	private double time;
+	private double step;
+	private long formattedSecond;
+	private String timestamp;
+
+	public LogGenerator(int hosts, int resources, double skew, long seed) {
+		this.random = new Random(seed);
+		this.hosts = new Zipf(hosts, skew);
+		this.resources = new Zipf(resources, skew);
+		this.span = DAY;
+		this.burstCount = 0;
+		this.burstFactor = 10;
+		this.burstLength = 600;
+		this.loginShare = 0;
+		this.loginBurstCount = 0;
+		this.formattedSecond = -1;
+	}
+
+	public void setSpan(long seconds) {
+		this.span = seconds;
+	}
+
+	public void setBursts(int count, double factor, int length) {
+		this.burstCount = count;
+		this.burstFactor = factor;
+		this.burstLength = length;
+	}
+
+	public void setLoginShare(double loginShare) {
+		this.loginShare = loginShare;
+	}
+
+	public void setLoginBursts(int count) {
+		this.loginBurstCount = count;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String out = null;
+		long size = 10L << 20;
+		int hosts = 80000;
+		int resources = 30000;
+		double skew = 1.0;
+		double days = 1;
+		int bursts = 5;
+		double burstFactor = 10;
+		int burstLength = 600;
+		double loginShare = 0.01;
+		int loginBursts = 20;
+		long seed = 1;
+		for (String arg : args) {
+			if (arg.startsWith("--out=")) {
+				out = arg.substring("--out=".length());
+			} else if (arg.startsWith("--size=")) {
+				size = parseSize(arg.substring("--size=".length()));
+			} else if (arg.startsWith("--hosts=")) {
+				hosts = Integer.parseInt(arg.substring("--hosts=".length()));
+			} else if (arg.startsWith("--resources=")) {
+				resources = Integer.parseInt(arg.substring("--resources=".length()));
+			} else if (arg.startsWith("--skew=")) {
+				skew = Double.parseDouble(arg.substring("--skew=".length()));
+			} else if (arg.startsWith("--days=")) {
+				days = Double.parseDouble(arg.substring("--days=".length()));
+			} else if (arg.startsWith("--bursts=")) {
+				bursts = Integer.parseInt(arg.substring("--bursts=".length()));
+			} else if (arg.startsWith("--burst-factor=")) {
+				burstFactor = Double.parseDouble(arg.substring("--burst-factor=".length()));
+			} else if (arg.startsWith("--burst-length=")) {
+				burstLength = Integer.parseInt(arg.substring("--burst-length=".length()));
+			} else if (arg.startsWith("--login-share=")) {
+				loginShare = Double.parseDouble(arg.substring("--login-share=".length()));
+			} else if (arg.startsWith("--login-bursts=")) {
+				loginBursts = Integer.parseInt(arg.substring("--login-bursts=".length()));
+			} else if (arg.startsWith("--seed=")) {
+				seed = Long.parseLong(arg.substring("--seed=".length()));
+			} else {
+				throw new IllegalArgumentException("unknown option: " + arg);
+			}
+		}
+		if (out == null) {
+			throw new IllegalArgumentException("--out=FILE is required");
+		}
+		LogGenerator generator = new LogGenerator(hosts, resources, skew, seed);
+		generator.setSpan(Math.max(1, Math.round(days * DAY)));
+		generator.setBursts(bursts, burstFactor, burstLength);
+		generator.setLoginShare(loginShare);
+		generator.setLoginBursts(loginBursts);
+		try (OutputStream stream = new FileOutputStream(out)) {
+			long lines = generator.write(stream, size);
+			System.err.println("Wrote " + lines + " lines to " + out);
+		}
+	}
+
+	public long write(OutputStream stream, long targetBytes) throws IOException {
+		OutputStream out = new BufferedOutputStream(stream, 1 << 20);
+		StringBuilder line = new StringBuilder(256);
+		byte[] bytes = new byte[256];
+		long written = 0;
+		long lines = 0;
+		// A first guess, replaced by the real average once lines are written
+		plan(targetBytes / 80.0);
+		while (written < targetBytes) {
+			line.setLength(0);
+			appendLine(line);
+			line.append('\n');
+			if (bytes.length < line.length()) {
+				bytes = new byte[line.length() * 2];
+			}
+			for (int i = 0; i < line.length(); i++) {
+				bytes[i] = (byte) line.charAt(i);
+			}
+			out.write(bytes, 0, line.length());
+			written += line.length();
+			lines++;
+			if (lines % REPLAN_LINES == 0) {
+				plan((targetBytes - written) / ((double) written / lines));
+			}
+		}
+		out.flush();
+		return lines;
+	}
+
+	public String[] lines(int count) {
+		plan(count);
+		String[] lines = new String[count];
+		StringBuilder line = new StringBuilder(256);
+		for (int i = 0; i < count; i++) {
+			line.setLength(0);
+			appendLine(line);
+			lines[i] = line.toString();
+		}
+		return lines;
+	}
+
+	private void appendLine(StringBuilder line) {
+		long second = START + (long) time;
+		if (second != formattedSecond) {
+			formattedSecond = second;
+			timestamp = TIMESTAMP.format(Instant.ofEpochSecond(second));
+		}
+		while (nextAttack < attackTimes.length && attackTimes[nextAttack] <= time) {
+			attacks.add(new Attack("attacker" + nextAttack + ".example.net", attackTimes[nextAttack],
+					3 + random.nextInt(4), 10 + random.nextInt(21)));
+			nextAttack++;
+		}
+		for (int i = 0; i < attacks.size(); i++) {
+			Attack attack = attacks.get(i);
+			if (attack.nextTime > time) {
+				continue;
+			}
+			line.append(attack.host).append(" - - [").append(timestamp).append("] ");
+			if (attack.failures > 0) {
+				attack.failures--;
+				attack.nextTime = time + 1 + random.nextInt(4);
+				line.append("\"POST /login HTTP/1.0\" 401 1420");
+			} else {
+				attack.followUps--;
+				attack.nextTime = time + 5 + random.nextInt(15);
+				line.append("\"GET /shuttle/countdown/ HTTP/1.0\" 200 3985");
+			}
+			if (attack.followUps == 0) {
+				attacks.remove(i);
+			}
+			advance();
+			return;
+		}
+		if (loginShare > 0 && random.nextDouble() < loginShare) {
+			line.append("login").append(random.nextInt(LOGIN_HOSTS)).append(".example.com - - [")
+					.append(timestamp).append("] \"POST /login HTTP/1.0\" ")
+					.append(random.nextInt(5) == 0 ? "401 1420" : "200 1420");
+		} else {
+			int resource = resources.draw(random);
+			int status = STATUSES[random.nextInt(STATUSES.length)];
+			line.append("host").append(hosts.draw(random)).append(".example.com - - [").append(timestamp)
+					.append("] \"GET ");
+			switch (resource & 3) {
+			case 0:
+				line.append("/images/page").append(resource).append(".gif");
+				break;
+			case 1:
+				line.append("/shuttle/missions/sts-").append(resource).append("/mission.html");
+				break;
+			case 2:
+				line.append("/history/apollo/apollo-").append(resource).append('/');
+				break;
+			default:
+				line.append("/software/winvn/file").append(resource).append(".txt");
+				break;
+			}
+			line.append(" HTTP/1.0\" ").append(status).append(' ');
+			if (status == 304 || status == 404) {
+				line.append('-');
+			} else {
+				line.append(100 + (resource * 7919L) % 50000);
+			}
+		}
+		advance();
+	}
+
+	private void plan(double remainingLines) {
+		if (burstStarts == null) {
+			burstStarts = new long[burstCount];
+			for (int i = 0; i < burstCount; i++) {
+				burstStarts[i] = (long) (random.nextDouble() * span);
+			}
+			Arrays.sort(burstStarts);
+			attackTimes = new double[loginBurstCount];
+			for (int i = 0; i < loginBurstCount; i++) {
+				attackTimes[i] = random.nextDouble() * span;
+			}
+			Arrays.sort(attackTimes);
+			attacks = new ArrayList<Attack>();
+		}
+		// A burst second takes burstFactor times as many lines as a plain one
+		double weight = Math.max(0, span - time);
+		for (long burstStart : burstStarts) {
+			if (burstStart >= time) {
+				weight += Math.min(burstLength, span - burstStart) * (burstFactor - 1);
+			}
+		}
+		step = weight / Math.max(1, remainingLines);
+	}
+
+	private void advance() {
+		double rate = 1;
+		long second = (long) time;
+		for (long burstStart : burstStarts) {
+			if (burstStart > second) {
+				break;
+			}
+			if (second < burstStart + burstLength) {
+				rate = burstFactor;
+				break;
+			}
+		}
+		time += step / rate;
+	}
+
+	private static long parseSize(String size) {
+		char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+		int shift = unit == 'K' ? 10 : unit == 'M' ? 20 : unit == 'G' ? 30 : 0;
+		String number = shift == 0 ? size : size.substring(0, size.length() - 1);
+		return (long) (Double.parseDouble(number) * (1L << shift));
+	}
+
+	private static class Attack {
+		private String host;
+		private double nextTime;
+		private int failures;
+		private int followUps;
+
+		Attack(String host, double nextTime, int failures, int followUps) {
+			this.host = host;
+			this.nextTime = nextTime;
+			this.failures = failures;
+			this.followUps = followUps;
+		}
+	}
+
+	private static class Zipf {
+		private double[] cumulative;
+
+		Zipf(int ranks, double skew) {
+			cumulative = new double[ranks];
+			double total = 0;
+			for (int rank = 0; rank < ranks; rank++) {
+				total += 1 / Math.pow(rank + 1, skew);
+				cumulative[rank] = total;
+			}
+			for (int rank = 0; rank < ranks; rank++) {
+				cumulative[rank] /= total;
+			}
+		}
+
+		int draw(Random random) {
+			int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+			return Math.min(rank < 0 ? -rank - 1 : rank, cumulative.length - 1);
+		}
+	}
+}
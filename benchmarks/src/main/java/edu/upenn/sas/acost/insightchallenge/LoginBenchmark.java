@@ -0,0 +1,59 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LoginBenchmark class: measures login heavy traffic. The given share of
+ * the requests are logins from a few hosts, and on top of those one in a
+ * hundred requests starts an attack of failed logins, so hosts keep
+ * getting blocked and released. Every operation handles the whole batch.
+ *
+ * Method Name - Description : Runtime
+ * logRequest  - logs every request into a new Server, which checks   : O(n), where n is the number of requests
+ *               each one against the failed login rules
+ ******************************/
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoginBenchmark {
+	@Param({"10000", "100000"})
+	private int requests;
+	@Param({"0.2", "0.8"})
+	private double loginShare;
+	private String[] hostNames;
+	private Request[] batch;
+
+	@Setup
+	public void setUp() {
+		String[] lines = BenchmarkData.lines(requests, 5000, 2000, 1.0, loginShare, requests / 100, 3);
+		hostNames = new String[requests];
+		batch = BenchmarkData.parseAll(lines, hostNames);
+	}
+
+	@Benchmark
+	public Server logRequest() {
+		Server server = new Server();
+		for (int i = 0; i < batch.length; i++) {
+			server.logRequest(hostNames[i], batch[i]);
+		}
+		return server;
+	}
+}
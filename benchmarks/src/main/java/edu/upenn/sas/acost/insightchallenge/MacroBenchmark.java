@@ -0,0 +1,237 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * MacroBenchmark class: measures Main end to end on a log, such as one
+ * written by LogGenerator. It runs Main a number of times, each in a fresh
+ * JVM through MacroRun inside a scratch copy of the repo layout that links
+ * to the log, and takes the median of
+ *
+ *   lines_per_second - lines of the log over the wall time of Main
+ *   peak_rss_kb      - peak resident set size of the JVM
+ *   gc_millis        - time spent in garbage collection
+ *
+ * The medians are written to the results file as properties. If a
+ * baseline results file is given, each median is compared with it and
+ * marked a regression when it is worse by more than the tolerance, by
+ * default 10%; GC time must also be worse by more than 50 ms, since short
+ * runs collect for only a few ms. The process exits with status 1 if any
+ * metric regressed, so a script can stop on it.
+ *
+ * Usage: MacroBenchmark --log=FILE [--results=FILE] [--baseline=FILE]
+ *        [--runs=N] [--tolerance=T] [--jvm=ARG]... [-- MAIN OPTIONS]
+ *
+ * Method Name - Description : Runtime
+ * main        - runs the benchmark as set by the command line         : O(r*n), where r is the number of runs and
+ *               arguments                                                 n the size of the log
+ * runOnce     - private helper that runs Main in a fresh JVM and      : O(n)
+ *               returns its costs
+ * countLines  - private helper that counts the lines of the log       : O(n)
+ * compare     - private helper that prints one metric against the     : O(1)
+ *               baseline and returns whether it regressed
+ * median      - private helper that returns the median of the runs    : O(r*logr)
+ * deleteTree  - private helper that deletes the scratch directory     : O(f), where f is the number of files
+ ******************************/
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+final class MacroBenchmark {
+	private static final long GC_SLACK_MILLIS = 50;
+
+	private MacroBenchmark() {
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String log = null;
+		String results = "macro-results.properties";
+		String baseline = null;
+		int runs = 3;
+		double tolerance = 0.10;
+		List<String> jvmArgs = new ArrayList<String>();
+		List<String> mainArgs = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.equals("--")) {
+				mainArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+				break;
+			} else if (arg.startsWith("--log=")) {
+				log = arg.substring("--log=".length());
+			} else if (arg.startsWith("--results=")) {
+				results = arg.substring("--results=".length());
+			} else if (arg.startsWith("--baseline=")) {
+				baseline = arg.substring("--baseline=".length());
+			} else if (arg.startsWith("--runs=")) {
+				runs = Integer.parseInt(arg.substring("--runs=".length()));
+			} else if (arg.startsWith("--tolerance=")) {
+				tolerance = Double.parseDouble(arg.substring("--tolerance=".length()));
+			} else if (arg.startsWith("--jvm=")) {
+				jvmArgs.add(arg.substring("--jvm=".length()));
+			} else {
+				throw new IllegalArgumentException("unknown option: " + arg);
+			}
+		}
+		if (log == null) {
+			throw new IllegalArgumentException("--log=FILE is required");
+		}
+		Path logPath = Paths.get(log).toAbsolutePath();
+		long lines = countLines(logPath);
+		Path scratch = Files.createTempDirectory("macro");
+		long[] wall = new long[runs];
+		long[] rss = new long[runs];
+		long[] gc = new long[runs];
+		try {
+			Files.createDirectories(scratch.resolve("src"));
+			Files.createDirectories(scratch.resolve("log_input"));
+			Files.createDirectories(scratch.resolve("log_output"));
+			Files.createSymbolicLink(scratch.resolve("log_input/log.txt"), logPath);
+			for (int run = 0; run < runs; run++) {
+				Map<String, Long> costs = runOnce(scratch.resolve("src").toFile(), jvmArgs, mainArgs);
+				wall[run] = Math.max(1, costs.get("wall_millis"));
+				rss[run] = costs.get("peak_rss_kb");
+				gc[run] = costs.get("gc_millis");
+				System.err.println("Run " + (run + 1) + ": " + costs);
+			}
+		} finally {
+			deleteTree(scratch.toFile());
+		}
+		Properties measured = new Properties();
+		measured.setProperty("log", logPath.toString());
+		measured.setProperty("lines", Long.toString(lines));
+		measured.setProperty("runs", Integer.toString(runs));
+		measured.setProperty("options", String.join(" ", mainArgs));
+		measured.setProperty("jvm_options", String.join(" ", jvmArgs));
+		measured.setProperty("java_version", System.getProperty("java.version"));
+		measured.setProperty("lines_per_second", Long.toString(lines * 1000 / median(wall)));
+		measured.setProperty("wall_millis", Long.toString(median(wall)));
+		measured.setProperty("peak_rss_kb", Long.toString(median(rss)));
+		measured.setProperty("gc_millis", Long.toString(median(gc)));
+		try (OutputStream out = new FileOutputStream(results)) {
+			measured.store(out, "MacroBenchmark results, medians of " + runs + " runs");
+		}
+		System.err.println("Wrote " + results);
+		if (baseline == null) {
+			return;
+		}
+		Properties base = new Properties();
+		try (InputStream in = new FileInputStream(baseline)) {
+			base.load(in);
+		}
+		if (!base.getProperty("lines", "").equals(measured.getProperty("lines"))
+				|| !base.getProperty("options", "").equals(measured.getProperty("options"))) {
+			System.err.println("Warning: " + baseline + " was measured on another log or with other options");
+		}
+		boolean regressed = false;
+		regressed |= compare("lines_per_second", measured, base, tolerance, false, 0);
+		regressed |= compare("peak_rss_kb", measured, base, tolerance, true, 0);
+		regressed |= compare("gc_millis", measured, base, tolerance, true, GC_SLACK_MILLIS);
+		if (regressed) {
+			System.exit(1);
+		}
+	}
+
+	private static Map<String, Long> runOnce(File directory, List<String> jvmArgs, List<String> mainArgs)
+			throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+		command.addAll(jvmArgs);
+		// The child runs in the scratch directory, so relative entries would break
+		List<String> classPath = new ArrayList<String>();
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+			classPath.add(new File(entry).getAbsolutePath());
+		}
+		command.add("-cp");
+		command.add(String.join(File.pathSeparator, classPath));
+		command.add(MacroRun.class.getName());
+		command.addAll(mainArgs);
+		ProcessBuilder builder = new ProcessBuilder(command);
+		builder.directory(directory);
+		builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+		Process process = builder.start();
+		String report = null;
+		try (BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(),
+				StandardCharsets.ISO_8859_1))) {
+			String line;
+			while ((line = out.readLine()) != null) {
+				report = line;
+			}
+		}
+		if (process.waitFor() != 0 || report == null) {
+			throw new IOException("Main failed with exit status " + process.exitValue());
+		}
+		Map<String, Long> costs = new HashMap<String, Long>();
+		for (String pair : report.split(" ")) {
+			int equals = pair.indexOf('=');
+			costs.put(pair.substring(0, equals), Long.parseLong(pair.substring(equals + 1)));
+		}
+		return costs;
+	}
+
+	private static long countLines(Path log) throws IOException {
+		long lines = 0;
+		byte last = '\n';
+		byte[] buffer = new byte[1 << 20];
+		try (InputStream in = new FileInputStream(log.toFile())) {
+			int read;
+			while ((read = in.read(buffer)) > 0) {
+				for (int i = 0; i < read; i++) {
+					if (buffer[i] == '\n') {
+						lines++;
+					}
+				}
+				last = buffer[read - 1];
+			}
+		}
+		return last == '\n' ? lines : lines + 1;
+	}
+
+	private static boolean compare(String metric, Properties measured, Properties base, double tolerance,
+			boolean higherIsWorse, long slack) {
+		long value = Long.parseLong(measured.getProperty(metric));
+		String baseValue = base.getProperty(metric);
+		if (baseValue == null || value < 0 || Long.parseLong(baseValue) < 0) {
+			System.err.println(metric + " " + value + ", no baseline");
+			return false;
+		}
+		long before = Long.parseLong(baseValue);
+		double change = before == 0 ? 0 : (double) (value - before) / before;
+		long worse = higherIsWorse ? value - before : before - value;
+		boolean regressed = worse > slack && worse > tolerance * before;
+		System.err.println(String.format("%s %d, baseline %d, %+.1f%%%s", metric, value, before, 100 * change,
+				regressed ? " REGRESSION" : ""));
+		return regressed;
+	}
+
+	private static long median(long[] values) {
+		long[] sorted = values.clone();
+		Arrays.sort(sorted);
+		return sorted[sorted.length / 2];
+	}
+
+	private static void deleteTree(File file) {
+		File[] children = file.listFiles();
+		if (children != null && !Files.isSymbolicLink(file.toPath())) {
+			for (File child : children) {
+				deleteTree(child);
+			}
+		}
+		file.delete();
+	}
+}
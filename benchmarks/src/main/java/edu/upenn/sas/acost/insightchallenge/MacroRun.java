@@ -0,0 +1,59 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * MacroRun class: runs Main once, end to end, with the given arguments and
+ * prints what it cost to standard output for MacroBenchmark, which starts
+ * it in a fresh JVM so every run starts cold and has its own peak RSS.
+ * The line reads
+ *
+ *   wall_millis=W gc_millis=G gc_count=C peak_rss_kb=R
+ *
+ * where peak RSS is VmHWM of /proc/self/status, or -1 where there is no
+ * /proc.
+ *
+ * Method Name - Description : Runtime
+ * main        - runs Main and prints the costs                      : O(n), where n is the size of the log
+ * peakRss     - private helper that returns the peak resident set   : O(1)
+ *               size in KiB
+ ******************************/
+
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+final class MacroRun {
+	private MacroRun() {
+	}
+
+	public static void main(String[] args) {
+		long start = System.nanoTime();
+		Main.main(args);
+		long wallMillis = (System.nanoTime() - start) / 1000000;
+		long gcMillis = 0;
+		long gcCount = 0;
+		for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+			gcMillis += Math.max(0, collector.getCollectionTime());
+			gcCount += Math.max(0, collector.getCollectionCount());
+		}
+		System.out.println("wall_millis=" + wallMillis + " gc_millis=" + gcMillis + " gc_count=" + gcCount
+				+ " peak_rss_kb=" + peakRss());
+	}
+
+	private static long peakRss() {
+		try {
+			for (String line : Files.readAllLines(Paths.get("/proc/self/status"), StandardCharsets.ISO_8859_1)) {
+				if (line.startsWith("VmHWM:")) {
+					return Long.parseLong(line.substring("VmHWM:".length()).replace("kB", "").trim());
+				}
+			}
+		} catch (IOException e) {
+			// No /proc on this system
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,90 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ParserBenchmark class: measures turning raw log bytes into Requests.
+ * Every operation handles a whole batch of lines, so the time per line is
+ * the score divided by lines, and with -prof gc the allocation per line is
+ * gc.alloc.rate.norm divided by lines.
+ *
+ * Method Name    - Description : Runtime
+ * parse          - parses every line into a reused ParsedLine        : O(b), where b is the number of bytes
+ * parseToRequest - parses every line and builds its Request, the way : O(b)
+ *                  a blocked line is built, as a baseline for
+ *                  parseAndLog
+ * parseAndLog    - runs every line through a RequestLineHandler into : O(b)
+ *                  a new Server, the whole single threaded path
+ ******************************/
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+	@Param({"10000", "100000"})
+	private int lines;
+	private ByteBuffer buffer;
+	private int[] starts;
+	private int[] ends;
+	private LogLineParser parser;
+	private ParsedLine parsed;
+
+	@Setup
+	public void setUp() {
+		String[] text = BenchmarkData.lines(lines, 20000, 10000, 1.1, 0.05, 0, 42);
+		starts = new int[lines];
+		ends = new int[lines];
+		buffer = BenchmarkData.toBuffer(text, starts);
+		for (int i = 0; i < lines; i++) {
+			ends[i] = starts[i] + text[i].length();
+		}
+		parser = new LogLineParser();
+		parsed = new ParsedLine();
+	}
+
+	@Benchmark
+	public void parse(Blackhole blackhole) {
+		for (int i = 0; i < lines; i++) {
+			blackhole.consume(parser.parse(buffer, starts[i], ends[i], parsed));
+			blackhole.consume(parsed.getEpochSecond());
+		}
+	}
+
+	@Benchmark
+	public void parseToRequest(Blackhole blackhole) {
+		for (int i = 0; i < lines; i++) {
+			parser.parse(buffer, starts[i], ends[i], parsed);
+			blackhole.consume(parsed.getHost());
+			blackhole.consume(parsed.toRequest());
+		}
+	}
+
+	@Benchmark
+	public Server parseAndLog() {
+		Server server = new Server();
+		RequestLineHandler handler = new RequestLineHandler(server);
+		for (int i = 0; i < lines; i++) {
+			handler.handleLine(buffer, starts[i], ends[i]);
+		}
+		return server;
+	}
+}
@@ -0,0 +1,70 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * RankingBenchmark class: measures the three rankings written at the end
+ * of a run, on a Server that already logged the given number of requests
+ * from the given number of hosts. None of them change the server, so the
+ * same one is ranked again on every operation.
+ *
+ * Method Name        - Description : Runtime
+ * getTopTenUserNames - ranks the hosts by requests                  : O(h*log10), where h is the number of hosts
+ * getTopTenRequests  - ranks the resources by bytes                 : O(r*log10), where r is the number of resources
+ * ripQueueReturn     - ranks the busiest 60 minute windows          : O(w + k*logk), where w is 3600
+ ******************************/
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RankingBenchmark {
+	@Param({"100000", "1000000"})
+	private int requests;
+	@Param({"1000", "50000"})
+	private int hosts;
+	private Server server;
+
+	@Setup
+	public void setUp() {
+		String[] lines = BenchmarkData.lines(requests, hosts, hosts / 2, 1.0, 0.02, 0, 11);
+		String[] hostNames = new String[requests];
+		Request[] batch = BenchmarkData.parseAll(lines, hostNames);
+		server = new Server();
+		for (int i = 0; i < batch.length; i++) {
+			server.logRequest(hostNames[i], batch[i]);
+		}
+	}
+
+	@Benchmark
+	public String[] getTopTenUserNames() {
+		return server.getTopTenUserNames();
+	}
+
+	@Benchmark
+	public String[] getTopTenRequests() {
+		return server.getTopTenRequests();
+	}
+
+	@Benchmark
+	public List<BusyWindow> ripQueueReturn() {
+		return server.ripQueueReturn();
+	}
+}
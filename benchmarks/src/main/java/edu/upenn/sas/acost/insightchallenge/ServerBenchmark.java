@@ -0,0 +1,61 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ServerBenchmark class: measures Server.logRequest on already parsed
+ * requests, with hosts and resources drawn from Zipf distributions of the
+ * given skew. A higher skew puts more of the traffic on the top hosts;
+ * more hosts grow the tables the requests are counted in. Every operation
+ * logs the whole batch into a new Server.
+ *
+ * Method Name - Description : Runtime
+ * logRequest  - logs every request                                  : O(n), where n is the number of requests
+ ******************************/
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ServerBenchmark {
+	@Param({"10000", "100000"})
+	private int requests;
+	@Param({"1000", "50000"})
+	private int hosts;
+	@Param({"0.8", "1.2"})
+	private double skew;
+	private String[] hostNames;
+	private Request[] batch;
+
+	@Setup
+	public void setUp() {
+		String[] lines = BenchmarkData.lines(requests, hosts, hosts / 2, skew, 0.02, 0, 7);
+		hostNames = new String[requests];
+		batch = BenchmarkData.parseAll(lines, hostNames);
+	}
+
+	@Benchmark
+	public Server logRequest() {
+		Server server = new Server();
+		for (int i = 0; i < batch.length; i++) {
+			server.logRequest(hostNames[i], batch[i]);
+		}
+		return server;
+	}
+}
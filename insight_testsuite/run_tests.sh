@@ -101,9 +101,33 @@ function compare_outputs {
   fi
 }
 
+# a test with a check.sh runs it from the temp folder instead of run.sh,
+# given the path of the test folder, and passes if it exits with 0
+function run_check {
+  local test_path=$(cd ${GRADER_ROOT}/tests/${test_folder} && pwd)
+  cd ${GRADER_ROOT}/temp
+  bash ${test_path}/check.sh ${test_path} 2>&1
+  local check_result=$?
+  cd ../
+
+  if [ "${check_result}" -eq "0" ]; then
+    echo -e "[${color_green}PASS${color_norm}]: ${test_folder} (check.sh)"
+    PASS_CNT=$(($PASS_CNT+1))
+  else
+    echo -e "[${color_red}FAIL${color_norm}]: ${test_folder} (check.sh)"
+  fi
+}
+
 function run_all_tests {
   TEST_FOLDERS=$(ls ${GRADER_ROOT}/tests)
-  NUM_TESTS=$(($(echo $(echo ${TEST_FOLDERS} | wc -w)) * 4))
+  NUM_TESTS=0
+  for test_folder in ${TEST_FOLDERS}; do
+    if [ -f ${GRADER_ROOT}/tests/${test_folder}/check.sh ]; then
+      NUM_TESTS=$(($NUM_TESTS+1))
+    else
+      NUM_TESTS=$(($NUM_TESTS+4))
+    fi
+  done
   PASS_CNT=0
 
   # Loop through all tests
@@ -111,11 +135,15 @@ function run_all_tests {
 
     setup_testing_input_output
 
-    cd ${GRADER_ROOT}/temp
-    bash run.sh 2>&1
-    cd ../
+    if [ -f ${GRADER_ROOT}/tests/${test_folder}/check.sh ]; then
+      run_check
+    else
+      cd ${GRADER_ROOT}/temp
+      bash run.sh 2>&1
+      cd ../
 
-    compare_outputs
+      compare_outputs
+    fi
     echo "[$(date)] ${PASS_CNT} of ${NUM_TESTS} tests passed" 
   done
 
@@ -0,0 +1,68 @@
+#!/usr/bin/env bash
+
+# Runs the features exactly, then with --approximate and --uniques, on the
+# same log. Every approximate count must be within its error bound of the
+# true count, a host or resource of the exact top 10 may only be missing
+# if its true count is no more than the smallest count listed, and every
+# unique count must be within three standard errors of the true one.
+# Runs from the temp folder; $1 is this test's folder.
+COUNTERS=20
+PRECISION=8
+
+bash run.sh > /dev/null 2>&1 || exit 1
+mkdir -p exact
+cp log_output/hosts.txt log_output/resources.txt exact/
+bash run.sh --approximate=${COUNTERS} --uniques=${PRECISION} > /dev/null 2>&1 || exit 1
+
+# the true requests of every host and bytes of every resource
+awk '{ count[$1]++ } END { for (host in count) print host "," count[host] }' \
+    log_input/log.txt > true_hosts.txt
+awk '{ bytes[$7] += ($10 == "-" ? 0 : $10) } END { for (resource in bytes) print resource "," bytes[resource] }' \
+    log_input/log.txt > true_resources.txt
+
+# checks name,count,error lines against the truth and the exact top list
+function check_top {
+  awk -F, '
+    FILENAME == ARGV[1] { truth[$1] = $2; next }
+    FILENAME == ARGV[2] {
+      listed[$1] = 1
+      if (truth[$1] < $2 - $3 || truth[$1] > $2) { print "out of bounds: " $0 ", true " truth[$1]; failed = 1 }
+      if (smallest == "" || $2 < smallest) smallest = $2
+      next
+    }
+    !($1 in listed) && truth[$1] > smallest { print "missing: " $1 ", true " truth[$1]; failed = 1 }
+    END { exit failed }' $1 $2 $3
+}
+
+# the true distinct hosts and resources of every hour and day, in the
+# format of uniques.txt
+awk '{
+    zone = substr($5, 1, 5)
+    hour = "hour," substr($4, 2, 14) ":00:00 " zone
+    day = "day," substr($4, 2, 11) ":00:00:00 " zone
+    if (!((hour, $1) in seen)) { seen[hour, $1] = 1; hosts[hour]++ }
+    if (!((hour, "resource", $7) in seen)) { seen[hour, "resource", $7] = 1; resources[hour]++ }
+    if (!((day, $1) in seen)) { seen[day, $1] = 1; hosts[day]++ }
+    if (!((day, "resource", $7) in seen)) { seen[day, "resource", $7] = 1; resources[day]++ }
+  }
+  END { for (key in hosts) print key "," hosts[key] "," resources[key] }' log_input/log.txt > true_uniques.txt
+
+function check_uniques {
+  awk -F, -v precision=${PRECISION} '
+    BEGIN { error = 3 * 1.04 / sqrt(2 ^ precision) }
+    function near(estimate, count) { return estimate - count <= error * count + 1 && count - estimate <= error * count + 1 }
+    FILENAME == ARGV[1] { hosts[$1 "," $2] = $3; resources[$1 "," $2] = $4; expected++; next }
+    {
+      key = $1 "," $2
+      if (!(key in hosts)) { print "unexpected: " $0; failed = 1; next }
+      if (!near($3, hosts[key]) || !near($4, resources[key])) {
+        print "out of bounds: " $0 ", true " hosts[key] "," resources[key]; failed = 1
+      }
+      found++
+    }
+    END { if (found != expected) { print found " of " expected " hours and days"; failed = 1 } exit failed }' $1 $2
+}
+
+check_top true_hosts.txt log_output/hosts.txt exact/hosts.txt || exit 1
+check_top true_resources.txt log_output/resources.txt exact/resources.txt || exit 1
+check_uniques true_uniques.txt log_output/uniques.txt
@@ -0,0 +1,75 @@
+#!/usr/bin/env bash
+
+# Runs every way of reading the log on the same input and diffs all of
+# their outputs against the plain sequential run: --mmap, --parallel,
+# --pipeline, --sharded, --columnar, a one-shot --checkpoint and a
+# --checkpoint resumed over three prefixes of the log cut mid-line. The
+# input is some 40000 generated lines, so the parallel chunks and the
+# batches really split, followed by log_input/log.txt, which holds odd
+# lines and ends without a newline. Runs from the temp folder; $1 is
+# this test's folder.
+FLAGS="--windows=10,60 --uniques"
+
+# a Park-Miller generator keeps the lines the same on every awk
+awk 'BEGIN {
+  seed = 2017
+  for (i = 0; i < 40000; i++) {
+    seed = (seed * 16807) % 2147483647
+    second = 82800 + int(i / 4)
+    day = second < 86400 ? "01" : "02"
+    second = second % 86400
+    stamp = sprintf("%s/Jul/1995:%02d:%02d:%02d -0400", day, int(second / 3600), int(second / 60) % 60, second % 60)
+    if (seed % 5 == 0) {
+      printf "10.0.%d.%d - - [%s] \"POST /login HTTP/1.0\" %d 1420\n", seed % 3, seed % 7, stamp, seed % 11 == 0 ? 200 : 401
+    } else if (seed % 7 == 0) {
+      printf "proxy-%d.aol.com - - [%s] \"GET /images/ksc-logo-%d.gif HTTP/1.0\" 304 -\n", seed % 97, stamp, seed % 13
+    } else {
+      printf "host-%d.net - - [%s] \"GET /shuttle/missions/sts-%d/ HTTP/1.0\" 200 %d\n", seed % 997, stamp, seed % 89, seed % 50000
+    }
+  }
+}' > input.txt
+cat log_input/log.txt >> input.txt
+cp input.txt log_input/log.txt
+
+bash run.sh ${FLAGS} > /dev/null 2>&1 || exit 1
+mkdir -p expected
+cp log_output/*.txt expected/
+
+FAILED=0
+
+# diffs every output of the last run against the plain run
+function compare {
+  for file in expected/*.txt; do
+    if ! diff -q ${file} log_output/$(basename ${file}) > /dev/null; then
+      echo "$1: $(basename ${file}) differs"
+      FAILED=1
+    fi
+  done
+}
+
+# runs Main on the compiled sources with fresh outputs
+function run_main {
+  rm -f log_output/*.*
+  (cd src && java edu/upenn/sas/acost/insightchallenge/Main "$@" > /dev/null 2>&1)
+}
+
+for mode in "--mmap" "--parallel=3" "--pipeline=2" "--sharded=3" "--mmap --sharded=2" \
+    "--checkpoint=../one-shot.bin"; do
+  run_main ${mode} ${FLAGS}
+  compare "${mode}"
+done
+
+run_main --convert=../log.columnar
+run_main --columnar=../log.columnar ${FLAGS}
+compare "--columnar"
+
+# resumes through run.sh, which keeps blocked.txt for a checkpoint
+: > log_input/log.txt
+rm -f log_output/*.*
+for cut in 1000000 2000001 $(wc -c < input.txt); do
+  head -c ${cut} input.txt | tail -c +$(($(wc -c < log_input/log.txt) + 1)) >> log_input/log.txt
+  bash run.sh --checkpoint=../resumed.bin ${FLAGS} > /dev/null 2>&1
+done
+compare "--checkpoint resumed"
+
+exit ${FAILED}
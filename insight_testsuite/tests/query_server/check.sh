@@ -0,0 +1,44 @@
+#!/usr/bin/env bash
+
+# Starts the query server on a free port against log_input/log.txt, then
+# checks the reply and status of every query in queries.txt against
+# expected.txt. Runs from the temp folder; $1 is this test's folder.
+TEST_PATH=$1
+
+rm -f ./log_output/*.*
+cd src
+javac edu/upenn/sas/acost/insightchallenge/*.java || exit 1
+java edu/upenn/sas/acost/insightchallenge/Main --serve=0 --poll=100 --publish=100 2> ../serve.err &
+SERVER_PID=$!
+trap "kill ${SERVER_PID} 2> /dev/null" EXIT
+cd ..
+
+for i in $(seq 100); do
+  PORT=$(sed -n 's|^Answering queries on http://localhost:\([0-9]*\)/$|\1|p' serve.err)
+  if [ -n "${PORT}" ]; then
+    break
+  fi
+  sleep 0.1
+done
+if [ -z "${PORT}" ]; then
+  echo "the query server did not start"
+  cat serve.err
+  exit 1
+fi
+
+# wait for a snapshot of the whole log
+LINES=$(grep -c '' log_input/log.txt)
+for i in $(seq 100); do
+  if curl -s http://localhost:${PORT}/status | grep -qx "lines,${LINES}"; then
+    break
+  fi
+  sleep 0.1
+done
+
+# age_millis changes from one query to the next
+while read query; do
+  echo "${query} $(curl -s -o reply.txt -w '%{http_code}' "http://localhost:${PORT}${query}")"
+  grep -v '^age_millis,' reply.txt
+done < ${TEST_PATH}/queries.txt > replies.txt
+
+diff replies.txt ${TEST_PATH}/expected.txt
@@ -4,7 +4,18 @@
 # the contents of this script could be replaced with similar files from any major language
 
 # I'll execute my programs, with the input directory log_input and output the files in the directory log_output
-rm -f ./log_output/*.*
+# a run resuming from a --checkpoint appends to the blocked.txt it left
+checkpoint=""
+for arg in "$@"; do
+  case "${arg}" in
+    --checkpoint=*) checkpoint="yes" ;;
+  esac
+done
+for file in ./log_output/*.*; do
+  if [ -z "${checkpoint}" ] || [ "${file}" != "./log_output/blocked.txt" ]; then
+    rm -f "${file}"
+  fi
+done
 touch ./log_output/blocked.txt
 touch ./log_output/hosts.txt
 touch ./log_output/hours.txt
@@ -12,7 +23,7 @@ touch ./log_output/resources.txt
 
 cd src
 javac edu/upenn/sas/acost/insightchallenge/*.java
-java edu/upenn/sas/acost/insightchallenge/Main
+java edu/upenn/sas/acost/insightchallenge/Main "$@"
 
 
 
@@ -0,0 +1,38 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * BlockedHost class: one host blocked by the failed login rules, with the
+ * epoch second its block started at, which is the time of its third
+ * failed login, and the epoch second the block ends at.
+ *
+ * Method Name - Description : Runtime
+ * getHost     - gets the host                                       : O(1)
+ * getStart    - gets the epoch second the block started at          : O(1)
+ * getEnd      - gets the epoch second the block ends at             : O(1)
+ ******************************/
+
+class BlockedHost {
+	private String host;
+	private long start;
+	private long end;
+
+	public BlockedHost(String host, long start, long end) {
+		this.host = host;
+		this.start = start;
+		this.end = end;
+	}
+
+	public String getHost() {
+		return host;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getEnd() {
+		return end;
+	}
+}
@@ -0,0 +1,186 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * BlockedLog class: BlockedSink that appends the original line of each
+ * blocked request to blocked.txt as soon as it is blocked, and keeps
+ * nothing but a count, so the memory of feature 4 is a fixed buffer
+ * however many requests are blocked. Lines are written one byte per char,
+ * as ISO-8859-1 like the log is read, so they come out as the exact bytes
+ * they came in as.
+ *
+ * Lines collect in a 64 KiB buffer that is written when it is full, and
+ * by a daemon thread once they have waited a second, whether or not more
+ * requests are blocked, so someone following the file lags at most about
+ * a second behind. flush writes the rest, and the file is complete once
+ * the log is closed. A shutdown hook writes what is buffered if the
+ * process is stopped before that.
+ *
+ * The file is written in place, not through a .tmp file like the other
+ * outputs, so it grows as the log is read and is never replaced whole.
+ * The buffer only ever holds whole lines, so after each write the file
+ * ends with a complete line, but a reader can see the file part way
+ * through a write, and a run that is killed outright leaves only the
+ * lines written before it. An existing file is cut to keepBytes first: 0
+ * for a fresh run, or the length a Checkpoint covered when the run
+ * carries on from one, so a run stopped after the checkpoint was saved
+ * does not leave the same blocked lines twice. A file shorter than
+ * keepBytes has lost lines the checkpoint counts on, and is an error.
+ *
+ * Method Name - Description : Runtime
+ * add         - appends the original line of a request              : O(k), where k is the length of the line
+ * flush       - writes what is buffered                             : O(b), where b is the buffered bytes
+ * getCount    - returns the number of lines appended                : O(1)
+ * getLength   - returns the length of the file once flushed         : O(1)
+ * close       - flushes and closes the file                         : O(b)
+ * flushIdle   - private helper that writes the buffer if its lines  : O(b)
+ *               have waited a second
+ * write       - private helper that writes the buffer to the file   : O(b)
+ ******************************/
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+class BlockedLog implements BlockedSink, Closeable {
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final long FLUSH_NANOS = 1000000000L;
+	private static final long FLUSH_CHECK_MILLIS = 250;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private byte[] bytes;
+	private long count;
+	private long length;
+	private long lastFlush;
+	private ScheduledExecutorService flusher;
+	private Thread shutdownHook;
+
+	public BlockedLog(String path, long keepBytes) throws IOException {
+		this.channel = FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		if (channel.size() < keepBytes) {
+			channel.close();
+			throw new IOException(path + " is shorter than the checkpoint expects, so blocked lines are lost;"
+					+ " delete the checkpoint to read the log from the start");
+		}
+		this.length = keepBytes;
+		channel.truncate(length);
+		channel.position(length);
+		this.bytes = new byte[BUFFER_SIZE];
+		this.buffer = ByteBuffer.wrap(bytes);
+		this.lastFlush = System.nanoTime();
+		this.flusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "blocked");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		flusher.scheduleWithFixedDelay(new Runnable() {
+			public void run() {
+				flushIdle();
+			}
+		}, FLUSH_CHECK_MILLIS, FLUSH_CHECK_MILLIS, TimeUnit.MILLISECONDS);
+		this.shutdownHook = new Thread() {
+			public void run() {
+				try {
+					flush();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	public synchronized void add(Request request) {
+		String line = request.getOriginalInput();
+		try {
+			if (buffer.remaining() <= line.length()) {
+				write();
+			}
+			if (buffer.remaining() <= line.length()) {
+				// Longer than the buffer, written on its own
+				byte[] longLine = new byte[line.length() + 1];
+				for (int i = 0; i < line.length(); i++) {
+					char c = line.charAt(i);
+					longLine[i] = c <= 0xff ? (byte) c : (byte) '?';
+				}
+				longLine[line.length()] = '\n';
+				ByteBuffer wrapped = ByteBuffer.wrap(longLine);
+				while (wrapped.hasRemaining()) {
+					channel.write(wrapped);
+				}
+			} else {
+				int position = buffer.position();
+				for (int i = 0; i < line.length(); i++) {
+					char c = line.charAt(i);
+					bytes[position++] = c <= 0xff ? (byte) c : (byte) '?';
+				}
+				bytes[position++] = '\n';
+				buffer.position(position);
+			}
+			length += line.length() + 1;
+			count++;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public synchronized void flush() throws IOException {
+		if (channel.isOpen()) {
+			write();
+		}
+	}
+
+	public synchronized long getCount() {
+		return count;
+	}
+
+	public synchronized long getLength() {
+		return length;
+	}
+
+	public void close() throws IOException {
+		flusher.shutdownNow();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// Already shutting down, the hook flushes before or after this
+		}
+		synchronized (this) {
+			try {
+				write();
+			} finally {
+				channel.close();
+			}
+		}
+	}
+
+	private synchronized void flushIdle() {
+		if (buffer.position() > 0 && System.nanoTime() - lastFlush >= FLUSH_NANOS && channel.isOpen()) {
+			try {
+				write();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private void write() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+		lastFlush = System.nanoTime();
+	}
+}
@@ -0,0 +1,26 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * BlockedSink interface: receives the requests a Server blocks, in the
+ * order they are blocked, as soon as each is blocked. A server keeps them
+ * in a list unless given another sink, see BlockedLog, which writes them
+ * out instead of keeping them. A sink that cannot write throws an
+ * UncheckedIOException, as logRequest throws no IOException.
+ *
+ * Method Name - Description : Runtime
+ * add         - takes one blocked request                           : O(1)
+ * flush       - makes every request taken so far visible            : O(b), where b is the requests not yet written
+ * getCount    - returns the number of requests taken                : O(1)
+ ******************************/
+
+import java.io.IOException;
+
+interface BlockedSink {
+	void add(Request request);
+
+	void flush() throws IOException;
+
+	long getCount();
+}
@@ -0,0 +1,38 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * BusyWindow class: one window of the busiest times feature, the epoch
+ * second it starts at, the number of requests inside it and the zone
+ * offset of the log at its start, used to print it.
+ *
+ * Method Name   - Description : Runtime
+ * getStart      - gets the epoch second the window starts at       : O(1)
+ * getRequests   - gets the number of requests in the window        : O(1)
+ * getZoneOffset - gets the zone offset in seconds at the start     : O(1)
+ ******************************/
+
+class BusyWindow {
+	private long start;
+	private long requests;
+	private int zoneOffset;
+
+	public BusyWindow(long start, long requests, int zoneOffset) {
+		this.start = start;
+		this.requests = requests;
+		this.zoneOffset = zoneOffset;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public long getRequests() {
+		return requests;
+	}
+
+	public int getZoneOffset() {
+		return zoneOffset;
+	}
+}
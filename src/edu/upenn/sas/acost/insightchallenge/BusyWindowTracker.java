@@ -0,0 +1,544 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * BusyWindowTracker class: finds the busiest windows of a fixed length on
+ * an absolute epoch second timeline, so a log can span any number of days
+ * or months. Only the seconds of the active window are kept, in a ring of
+ * per-second counts, together with the running sum of the window that
+ * starts at the oldest of them. When a request arrives past the end of
+ * that window, the window is complete: it is offered to a bounded heap of
+ * the best windows and the start slides forward one second. Memory is
+ * O(w + k), where w is the window length and k the number of windows
+ * kept, however long the log is, and reading the result costs O(w + k)
+ * however many windows were seen.
+ *
+ * A stretch without any request is skipped in one step instead of one
+ * window at a time. Those windows hold no requests, and any log with such
+ * a gap already has at least w windows with requests, so they can only
+ * matter if more than w windows are asked for.
+ *
+ * With nonOverlapping, only peaks are ranked: windows that no overlapping
+ * window beats, where a tie goes to the earlier window. Two peaks never
+ * overlap, so every window reported is a distinct busy period rather than
+ * the next second of the same one. A window is a peak once the w - 1
+ * windows after it are known, which a PeakFilter checks with a queue of
+ * at most w windows.
+ *
+ * Lines are expected in time order, as the log is written. A line older
+ * than the oldest second still kept is counted at that second.
+ *
+ * To merge the tracker of the log that directly follows this one, the
+ * counts of its first w seconds are kept as well. They finish the windows
+ * still open at the end of this log, and the window starting at the first
+ * second of the next log, which may share that second with this log. With
+ * nonOverlapping, whether a window of the next log near its start is a
+ * peak depends on this log too, so the first 2w windows it completed are
+ * kept and replayed through this tracker's PeakFilter.
+ *
+ * Method Name       - Description : Runtime
+ * count             - counts requests at an epoch second           : O(1) amortized
+ * merge             - merges the tracker of the log directly       : O(w + k*logk)
+ *                     following this one
+ * getBusiestWindows - returns the best windows, including those    : O(w + k*logk)
+ *                     that are still open, best first
+ * writeTo           - writes the state for a Checkpoint            : O(w + k)
+ * readFrom          - replaces the state with the one written by   : O(w + k*logk)
+ *                     writeTo
+ * advanceTo         - private helper that completes every window   : O(1) amortized
+ *                     that ends before an epoch second
+ * complete          - private helper that ranks a complete window  : O(logk)
+ * adoptRing         - private helper that takes over the active    : O(1)
+ *                     window of the next tracker
+ * slot              - private helper that returns the ring slot    : O(1)
+ *                     of an epoch second
+ ******************************/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+class BusyWindowTracker {
+	private static final long NO_SECOND = Long.MIN_VALUE;
+	private int windowSeconds;
+	private int top;
+	// Requests and zone offset of each second in the active window
+	private int[] counts;
+	private int[] zones;
+	private long start;
+	private long lastSecond;
+	private long windowRequests;
+	private int startZone;
+	// Requests and zone offset of each of the first windowSeconds seconds
+	private long firstSecond;
+	private int[] headCounts;
+	private int[] headZones;
+	// Requests and zone offset of each of the first 2 * windowSeconds
+	// complete windows, only kept with nonOverlapping
+	private long[] headWindows;
+	private int[] headWindowZones;
+	private long lastComplete;
+	private Ranking best;
+	private PeakFilter peaks;
+
+	public BusyWindowTracker(int windowSeconds, int top) {
+		this(windowSeconds, top, false);
+	}
+
+	public BusyWindowTracker(int windowSeconds, int top, boolean nonOverlapping) {
+		this.windowSeconds = windowSeconds;
+		this.top = top;
+		this.counts = new int[windowSeconds];
+		this.zones = new int[windowSeconds];
+		this.headCounts = new int[windowSeconds];
+		this.headZones = new int[windowSeconds];
+		this.firstSecond = NO_SECOND;
+		this.lastComplete = NO_SECOND;
+		// One spare, a merge can drop a window the next tracker ranked
+		this.best = new Ranking(top + 1);
+		if (nonOverlapping) {
+			this.headWindows = new long[2 * windowSeconds];
+			this.headWindowZones = new int[2 * windowSeconds];
+			this.peaks = new PeakFilter(windowSeconds);
+		}
+	}
+
+	public void count(long second, int zoneOffset, int requests) {
+		if (firstSecond == NO_SECOND) {
+			firstSecond = second;
+			start = second;
+			lastSecond = second;
+			startZone = zoneOffset;
+		}
+		if (second < start) {
+			second = start;
+		}
+		if (second - firstSecond < windowSeconds) {
+			headCounts[(int) (second - firstSecond)] += requests;
+			headZones[(int) (second - firstSecond)] = zoneOffset;
+		}
+		advanceTo(second);
+		counts[slot(second)] += requests;
+		zones[slot(second)] = zoneOffset;
+		windowRequests += requests;
+		lastSecond = Math.max(lastSecond, second);
+	}
+
+	public void merge(BusyWindowTracker next) {
+		if (next.firstSecond == NO_SECOND) {
+			return;
+		}
+		if (firstSecond == NO_SECOND) {
+			firstSecond = next.firstSecond;
+			headCounts = next.headCounts;
+			headZones = next.headZones;
+			headWindows = next.headWindows;
+			headWindowZones = next.headWindowZones;
+			best = next.best;
+			peaks = next.peaks;
+			adoptRing(next);
+			return;
+		}
+		long nextFirst = next.firstSecond;
+		long headEnd = Math.min(next.lastSecond, nextFirst + windowSeconds - 1);
+		for (long second = nextFirst; second <= headEnd; second++) {
+			int i = (int) (second - nextFirst);
+			if (next.headCounts[i] > 0) {
+				count(second, next.headZones[i], next.headCounts[i]);
+			}
+		}
+		if (next.lastComplete == NO_SECOND) {
+			// The whole next log was in its head, nothing was completed there
+			return;
+		}
+		// Every window before the next log is complete now, and so is the
+		// one starting at its first second, which the next tracker may have
+		// completed without the requests this log had in that second
+		advanceTo(nextFirst + windowSeconds - 1);
+		if (counts[slot(start)] > 0) {
+			startZone = zones[slot(start)];
+		}
+		complete(start, windowRequests, startZone);
+		if (peaks == null) {
+			next.best.remove(nextFirst);
+			best.addAll(next.best);
+		} else {
+			// Peaks up to w windows into the next log depend on this log. If
+			// the next log went far enough past them, keep its later peaks and
+			// its filter, otherwise redo all of its windows here
+			boolean keepNextPeaks = next.lastComplete - nextFirst >= 2 * windowSeconds;
+			long replayEnd = keepNextPeaks ? nextFirst + 2 * windowSeconds - 1 : next.lastComplete;
+			for (long window = nextFirst + 1; window <= replayEnd; window++) {
+				int i = (int) (window - nextFirst);
+				if (next.headWindows[i] > 0) {
+					complete(window, next.headWindows[i], next.headWindowZones[i]);
+				}
+			}
+			if (keepNextPeaks) {
+				// Windows missing from the replay hold no requests, so every
+				// window up to here can be decided
+				peaks.decideUpTo(nextFirst + windowSeconds - 1, best);
+				next.best.removeBefore(nextFirst + windowSeconds);
+				best.addAll(next.best);
+				peaks = next.peaks;
+			}
+		}
+		adoptRing(next);
+	}
+
+	public List<BusyWindow> getBusiestWindows() {
+		Ranking ranking = best.copy();
+		if (firstSecond == NO_SECOND) {
+			return ranking.toList(top);
+		}
+		PeakFilter openPeaks = peaks == null ? null : peaks.copy();
+		// The open windows only lose requests from here on
+		long requests = windowRequests;
+		int zone = startZone;
+		for (long second = start; second <= lastSecond; second++) {
+			if (counts[slot(second)] > 0) {
+				zone = zones[slot(second)];
+			}
+			if (openPeaks == null) {
+				ranking.offer(second, requests, zone);
+			} else {
+				openPeaks.offer(second, requests, zone, ranking);
+			}
+			requests -= counts[slot(second)];
+		}
+		if (openPeaks != null) {
+			openPeaks.finish(ranking);
+		}
+		return ranking.toList(top);
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(start);
+		out.writeLong(lastSecond);
+		out.writeLong(windowRequests);
+		out.writeInt(startZone);
+		out.writeLong(firstSecond);
+		out.writeLong(lastComplete);
+		Checkpoint.writeInts(out, counts, counts.length);
+		Checkpoint.writeInts(out, zones, zones.length);
+		Checkpoint.writeInts(out, headCounts, headCounts.length);
+		Checkpoint.writeInts(out, headZones, headZones.length);
+		if (peaks != null) {
+			Checkpoint.writeLongs(out, headWindows, headWindows.length);
+			Checkpoint.writeInts(out, headWindowZones, headWindowZones.length);
+			peaks.writeTo(out);
+		}
+		best.writeTo(out);
+	}
+
+	public void readFrom(DataInput in) throws IOException {
+		start = in.readLong();
+		lastSecond = in.readLong();
+		windowRequests = in.readLong();
+		startZone = in.readInt();
+		firstSecond = in.readLong();
+		lastComplete = in.readLong();
+		counts = readWindow(Checkpoint.readInts(in));
+		zones = readWindow(Checkpoint.readInts(in));
+		headCounts = readWindow(Checkpoint.readInts(in));
+		headZones = readWindow(Checkpoint.readInts(in));
+		if (peaks != null) {
+			headWindows = Checkpoint.readLongs(in);
+			headWindowZones = Checkpoint.readInts(in);
+			peaks.readFrom(in);
+		}
+		best.readFrom(in);
+	}
+
+	private int[] readWindow(int[] values) throws IOException {
+		if (values.length != windowSeconds) {
+			throw new IOException(values.length + " seconds saved for a window of " + windowSeconds);
+		}
+		return values;
+	}
+
+	private void advanceTo(long second) {
+		while (second - start >= windowSeconds) {
+			if (windowRequests == 0) {
+				start = second - windowSeconds + 1;
+				break;
+			}
+			if (counts[slot(start)] > 0) {
+				startZone = zones[slot(start)];
+			}
+			complete(start, windowRequests, startZone);
+			windowRequests -= counts[slot(start)];
+			counts[slot(start)] = 0;
+			start++;
+		}
+	}
+
+	private void complete(long window, long requests, int zone) {
+		if (peaks == null) {
+			best.offer(window, requests, zone);
+		} else {
+			if (window - firstSecond < headWindows.length) {
+				headWindows[(int) (window - firstSecond)] = requests;
+				headWindowZones[(int) (window - firstSecond)] = zone;
+			}
+			peaks.offer(window, requests, zone, best);
+		}
+		lastComplete = window;
+	}
+
+	private void adoptRing(BusyWindowTracker next) {
+		counts = next.counts;
+		zones = next.zones;
+		start = next.start;
+		lastSecond = next.lastSecond;
+		windowRequests = next.windowRequests;
+		startZone = next.startZone;
+		lastComplete = next.lastComplete;
+	}
+
+	private int slot(long second) {
+		return (int) Math.floorMod(second, (long) windowSeconds);
+	}
+
+	/*
+	 * Bounded min-heap of the best windows offered so far. The root is the
+	 * worst window kept, ties go to the earlier window
+	 */
+	private static class Ranking {
+		private long[] starts;
+		private long[] requests;
+		private int[] zones;
+		private int size;
+
+		Ranking(int capacity) {
+			this.starts = new long[capacity];
+			this.requests = new long[capacity];
+			this.zones = new int[capacity];
+		}
+
+		void offer(long start, long windowRequests, int zone) {
+			if (size < starts.length) {
+				set(size, start, windowRequests, zone);
+				siftUp(size++);
+			} else if (size > 0 && better(start, windowRequests, starts[0], requests[0])) {
+				set(0, start, windowRequests, zone);
+				siftDown(0);
+			}
+		}
+
+		void remove(long start) {
+			for (int i = 0; i < size; i++) {
+				if (starts[i] == start) {
+					removeAt(i);
+					return;
+				}
+			}
+		}
+
+		void removeBefore(long limit) {
+			Ranking kept = copy();
+			size = 0;
+			for (int i = 0; i < kept.size; i++) {
+				if (kept.starts[i] >= limit) {
+					offer(kept.starts[i], kept.requests[i], kept.zones[i]);
+				}
+			}
+		}
+
+		void addAll(Ranking other) {
+			for (int i = 0; i < other.size; i++) {
+				offer(other.starts[i], other.requests[i], other.zones[i]);
+			}
+		}
+
+		Ranking copy() {
+			Ranking copy = new Ranking(starts.length);
+			copy.addAll(this);
+			return copy;
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeLong(starts[i]);
+				out.writeLong(requests[i]);
+				out.writeInt(zones[i]);
+			}
+		}
+
+		void readFrom(DataInput in) throws IOException {
+			size = 0;
+			int count = in.readInt();
+			for (int i = 0; i < count; i++) {
+				offer(in.readLong(), in.readLong(), in.readInt());
+			}
+		}
+
+		List<BusyWindow> toList(int top) {
+			List<BusyWindow> windows = new ArrayList<BusyWindow>(size);
+			for (int i = 0; i < size; i++) {
+				windows.add(new BusyWindow(starts[i], requests[i], zones[i]));
+			}
+			Collections.sort(windows, new Comparator<BusyWindow>() {
+				public int compare(BusyWindow one, BusyWindow two) {
+					if (one.getRequests() != two.getRequests()) {
+						return Long.compare(two.getRequests(), one.getRequests());
+					}
+					return Long.compare(one.getStart(), two.getStart());
+				}
+			});
+			return windows.subList(0, Math.min(top, windows.size()));
+		}
+
+		private void removeAt(int i) {
+			size--;
+			if (i == size) {
+				return;
+			}
+			set(i, starts[size], requests[size], zones[size]);
+			siftDown(i);
+			siftUp(i);
+		}
+
+		private void siftUp(int i) {
+			while (i > 0) {
+				int parent = (i - 1) / 2;
+				if (!better(starts[parent], requests[parent], starts[i], requests[i])) {
+					return;
+				}
+				swap(i, parent);
+				i = parent;
+			}
+		}
+
+		private void siftDown(int i) {
+			while (true) {
+				int child = i * 2 + 1;
+				if (child >= size) {
+					return;
+				}
+				if (child + 1 < size && better(starts[child], requests[child],
+						starts[child + 1], requests[child + 1])) {
+					child++;
+				}
+				if (!better(starts[i], requests[i], starts[child], requests[child])) {
+					return;
+				}
+				swap(i, child);
+				i = child;
+			}
+		}
+
+		private void set(int i, long start, long windowRequests, int zone) {
+			starts[i] = start;
+			requests[i] = windowRequests;
+			zones[i] = zone;
+		}
+
+		private void swap(int i, int j) {
+			long start = starts[i];
+			long windowRequests = requests[i];
+			int zone = zones[i];
+			set(i, starts[j], requests[j], zones[j]);
+			set(j, start, windowRequests, zone);
+		}
+
+		private static boolean better(long oneStart, long oneRequests, long twoStart, long twoRequests) {
+			if (oneRequests != twoRequests) {
+				return oneRequests > twoRequests;
+			}
+			return oneStart < twoStart;
+		}
+	}
+
+	/*
+	 * Passes on the windows that no overlapping window beats. Windows come
+	 * in start order and wait in a queue with falling request counts; a
+	 * window that beats the last ones in the queue drops them, since they
+	 * overlap it or were already decided. A window is decided once the
+	 * windows up to w - 1 seconds after it are in. It is then the first in
+	 * the queue, and it is a peak unless the window decided before it
+	 * overlaps it, which has at least as many requests and is earlier
+	 */
+	private static class PeakFilter {
+		private int windowSeconds;
+		private long[] starts;
+		private long[] requests;
+		private int[] zones;
+		private int first;
+		private int size;
+		private long lastDecided;
+
+		PeakFilter(int windowSeconds) {
+			this.windowSeconds = windowSeconds;
+			this.starts = new long[windowSeconds + 1];
+			this.requests = new long[windowSeconds + 1];
+			this.zones = new int[windowSeconds + 1];
+			this.lastDecided = NO_SECOND;
+		}
+
+		void offer(long start, long windowRequests, int zone, Ranking ranking) {
+			decideUpTo(start - windowSeconds, ranking);
+			while (size > 0 && requests[index(size - 1)] < windowRequests) {
+				size--;
+			}
+			int last = index(size++);
+			starts[last] = start;
+			requests[last] = windowRequests;
+			zones[last] = zone;
+		}
+
+		void finish(Ranking ranking) {
+			decideUpTo(Long.MAX_VALUE, ranking);
+		}
+
+		PeakFilter copy() {
+			PeakFilter copy = new PeakFilter(windowSeconds);
+			copy.starts = starts.clone();
+			copy.requests = requests.clone();
+			copy.zones = zones.clone();
+			copy.first = first;
+			copy.size = size;
+			copy.lastDecided = lastDecided;
+			return copy;
+		}
+
+		void writeTo(DataOutput out) throws IOException {
+			Checkpoint.writeLongs(out, starts, starts.length);
+			Checkpoint.writeLongs(out, requests, requests.length);
+			Checkpoint.writeInts(out, zones, zones.length);
+			out.writeInt(first);
+			out.writeInt(size);
+			out.writeLong(lastDecided);
+		}
+
+		void readFrom(DataInput in) throws IOException {
+			starts = Checkpoint.readLongs(in);
+			requests = Checkpoint.readLongs(in);
+			zones = Checkpoint.readInts(in);
+			first = in.readInt();
+			size = in.readInt();
+			lastDecided = in.readLong();
+		}
+
+		private void decideUpTo(long window, Ranking ranking) {
+			while (size > 0 && starts[first] <= window) {
+				if (lastDecided == NO_SECOND || starts[first] - lastDecided >= windowSeconds) {
+					ranking.offer(starts[first], requests[first], zones[first]);
+				}
+				lastDecided = starts[first];
+				first = index(1);
+				size--;
+			}
+		}
+
+		private int index(int i) {
+			return (first + i) % starts.length;
+		}
+	}
+}
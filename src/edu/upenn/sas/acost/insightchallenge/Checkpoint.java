@@ -0,0 +1,192 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * Checkpoint class: saves the aggregates of a bounded Server to a binary
+ * file together with the offset of the log it covers, so a later run can
+ * restore them and only read the bytes appended since. The file holds
+ *
+ *   magic, version
+ *   offset      - the log bytes covered, always up to a line end
+ *   checksum    - CRC32 of the first and the last MiB of the covered bytes
+ *   blocked     - the length of blocked.txt when the offset was reached
+ *   server      - the settings and state written by Server.writeTo
+ *
+ * A checkpoint is only restored if the log still has at least offset
+ * bytes and the same checksum over them, so a log that was rotated,
+ * truncated or rewritten is read from the start instead. Only the two
+ * ends of the covered bytes are checked, so restoring costs the same for
+ * a log of any length; logs are only ever appended to, and a change to
+ * the middle alone is not detected. A checkpoint whose settings differ
+ * from the server's is not restored either.
+ *
+ * Blocked requests are written to blocked.txt as they are blocked, see
+ * BlockedLog, so the checkpoint holds only how much of blocked.txt the
+ * covered bytes wrote. A run that restores it keeps that much of the file
+ * and appends to it; a run that does not starts blocked.txt over. The
+ * file must therefore survive between the runs, which run.sh sees to
+ * when given --checkpoint, and a run refuses to resume over a shorter one.
+ *
+ * The file is written next to its final name and moved over it, so a run
+ * that is stopped while saving leaves the previous checkpoint in place.
+ *
+ * Method Name - Description : Runtime
+ * restore     - restores the server and returns the offset to read  : O(s), where s is the size of the state
+ *               on from, 0 if there is no usable checkpoint
+ * getBlockedLength - returns the length of blocked.txt saved with   : O(1)
+ *               the restored checkpoint, 0 if none was restored
+ * save        - saves the server, the offset it covers and the      : O(s)
+ *               length of blocked.txt
+ * checksum    - private helper that checksums the ends of the       : O(1)
+ *               first offset bytes of the log
+ * writeString - writes a string of any length as UTF-8              : O(k), where k is the length of the string
+ * readString  - reads a string written by writeString               : O(k)
+ * writeInts   - writes an int array with its length                 : O(k), where k is the length of the array
+ * readInts    - reads an int array written by writeInts             : O(k)
+ * writeLongs  - writes a long array with its length                 : O(k)
+ * readLongs   - reads a long array written by writeLongs            : O(k)
+ ******************************/
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+class Checkpoint {
+	private static final int MAGIC = 0x4c4f4743;
+	private static final int VERSION = 2;
+	private static final int CHECKED_BYTES = 1 << 20;
+	private String path;
+	private String logPath;
+	private long blockedLength;
+
+	public Checkpoint(String path, String logPath) {
+		this.path = path;
+		this.logPath = logPath;
+	}
+
+	public long restore(Server server) throws IOException {
+		File file = new File(path);
+		if (!file.exists()) {
+			return 0;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(path + " is not a checkpoint of this version");
+			}
+			long offset = in.readLong();
+			long checksum = in.readLong();
+			long savedBlockedLength = in.readLong();
+			if (checksum != checksum(offset)) {
+				System.err.println("Log changed since " + path + " was saved, reading it from the start");
+				return 0;
+			}
+			if (!server.readFrom(in)) {
+				System.err.println(path + " was saved with other settings, reading the log from the start");
+				return 0;
+			}
+			blockedLength = savedBlockedLength;
+			return offset;
+		}
+	}
+
+	public long getBlockedLength() {
+		return blockedLength;
+	}
+
+	public void save(Server server, long offset, long blockedLength) throws IOException {
+		File tmp = new File(path + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(offset);
+			out.writeLong(checksum(offset));
+			out.writeLong(blockedLength);
+			server.writeTo(out);
+		}
+		Files.move(tmp.toPath(), Paths.get(path), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private long checksum(long offset) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(logPath), StandardOpenOption.READ)) {
+			if (channel.size() < offset) {
+				return -1;
+			}
+			CRC32 crc = new CRC32();
+			long headEnd = Math.min(offset, CHECKED_BYTES);
+			long tailStart = Math.max(headEnd, offset - CHECKED_BYTES);
+			ByteBuffer buffer = ByteBuffer.allocate(CHECKED_BYTES);
+			for (long[] range : new long[][] {{0, headEnd}, {tailStart, offset}}) {
+				buffer.clear().limit((int) (range[1] - range[0]));
+				long position = range[0];
+				while (buffer.hasRemaining()) {
+					int read = channel.read(buffer, position);
+					if (read < 0) {
+						return -1;
+					}
+					position += read;
+				}
+				crc.update(buffer.array(), 0, buffer.position());
+			}
+			return crc.getValue();
+		}
+	}
+
+	static void writeString(DataOutput out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	static String readString(DataInput in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	static void writeInts(DataOutput out, int[] values, int length) throws IOException {
+		out.writeInt(length);
+		for (int i = 0; i < length; i++) {
+			out.writeInt(values[i]);
+		}
+	}
+
+	static int[] readInts(DataInput in) throws IOException {
+		int[] values = new int[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readInt();
+		}
+		return values;
+	}
+
+	static void writeLongs(DataOutput out, long[] values, int length) throws IOException {
+		out.writeInt(length);
+		for (int i = 0; i < length; i++) {
+			out.writeLong(values[i]);
+		}
+	}
+
+	static long[] readLongs(DataInput in) throws IOException {
+		long[] values = new long[in.readInt()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = in.readLong();
+		}
+		return values;
+	}
+}
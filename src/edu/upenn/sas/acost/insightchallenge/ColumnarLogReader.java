@@ -0,0 +1,213 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ColumnarLogReader class: feeds every row of a file written by
+ * ColumnarLogWriter to a Server, without parsing any text. Each column is
+ * memory mapped on its own and decoded in step with the others; hosts,
+ * resources and commands come straight from the dictionaries, so no string
+ * is built per row and interning them in the server only hashes the cached
+ * hash codes. Status codes stay ints.
+ *
+ * Rows carry no original line. Only blocked.txt needs one, so while
+ * reading, the server's BlockedSink is wrapped by one that reads the line
+ * of a blocked row back from the text log at the offset stored for it
+ * before passing the request on. The text log must still be the one that was converted;
+ * a log of another size is refused. Other requests keep a null original
+ * line, which nothing reads.
+ *
+ * A column is mapped in one piece and may not be larger than 2 GiB.
+ *
+ * Method Name      - Description : Runtime
+ * read             - logs every row with the server                 : O(r), where r is the number of rows
+ * getRows          - returns the number of rows in the file          : O(1)
+ * getMalformedLines - returns the number of lines the writer left out : O(1)
+ * readHeader       - private helper that reads the header and the    : O(d), where d is the size of the dictionaries
+ *                    dictionaries and maps the columns
+ * withOriginalLine - private helper that wraps a sink so the requests : O(1)
+ *                    it takes get the line of the current row
+ * originalLine     - private helper that reads one line of the text  : O(k), where k is the length of the line
+ *                    log
+ * readVarLong      - reads a value written by writeVarLong           : O(1)
+ * unZigZag         - reverses ColumnarLogWriter.zigZag               : O(1)
+ ******************************/
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+class ColumnarLogReader {
+	// magic, version, rows, malformed, text size, dictionary length, columns
+	private static final int HEADER_SIZE = 4 + 4 + 8 * 4 + 8 * ColumnarLogWriter.COLUMNS;
+	private String columnarPath;
+	private String textPath;
+	private long rows;
+	private long malformedLines;
+	private long textSize;
+	private SymbolTable hosts;
+	private SymbolTable resources;
+	private SymbolTable commands;
+	private ByteBuffer[] columns;
+	// Offset in the text log of the row being logged
+	private long rowOffset;
+
+	public ColumnarLogReader(String columnarPath, String textPath) {
+		this.columnarPath = columnarPath;
+		this.textPath = textPath;
+		this.hosts = new SymbolTable();
+		this.resources = new SymbolTable();
+		this.commands = new SymbolTable();
+	}
+
+	public void read(Server server) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(columnarPath), StandardOpenOption.READ);
+				FileChannel text = FileChannel.open(Paths.get(textPath), StandardOpenOption.READ)) {
+			readHeader(channel);
+			if (text.size() != textSize) {
+				throw new IOException(textPath + " changed since " + columnarPath + " was written");
+			}
+			ByteBuffer timeColumn = columns[ColumnarLogWriter.TIME];
+			ByteBuffer zoneColumn = columns[ColumnarLogWriter.ZONE];
+			ByteBuffer hostColumn = columns[ColumnarLogWriter.HOST];
+			ByteBuffer resourceColumn = columns[ColumnarLogWriter.RESOURCE];
+			ByteBuffer commandColumn = columns[ColumnarLogWriter.COMMAND];
+			ByteBuffer statusColumn = columns[ColumnarLogWriter.STATUS];
+			ByteBuffer bytesColumn = columns[ColumnarLogWriter.BYTES];
+			ByteBuffer offsetColumn = columns[ColumnarLogWriter.OFFSET];
+			long time = 0;
+			long zone = 0;
+			rowOffset = 0;
+			BlockedSink blocked = server.getBlockedSink();
+			server.setBlockedSink(withOriginalLine(blocked, text));
+			try {
+				for (long row = 0; row < rows; row++) {
+					time += unZigZag(readVarLong(timeColumn));
+					zone += unZigZag(readVarLong(zoneColumn));
+					String host = hosts.getSymbol((int) readVarLong(hostColumn));
+					String resource = resources.getSymbol((int) readVarLong(resourceColumn));
+					String command = commands.getSymbol((int) readVarLong(commandColumn));
+					int status = (int) readVarLong(statusColumn);
+					int bytes = (int) readVarLong(bytesColumn);
+					rowOffset += readVarLong(offsetColumn);
+					Metrics.LINES.increment();
+					server.logRequest(host, new Request(time, (int) zone, command, resource, status, bytes, null));
+				}
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			} finally {
+				server.setBlockedSink(blocked);
+			}
+		}
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getMalformedLines() {
+		return malformedLines;
+	}
+
+	private void readHeader(FileChannel channel) throws IOException {
+		// Not closed, that would close the channel as well
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+		if (in.readInt() != ColumnarLogWriter.MAGIC || in.readInt() != ColumnarLogWriter.VERSION) {
+			throw new IOException(columnarPath + " is not a columnar log of this version");
+		}
+		rows = in.readLong();
+		malformedLines = in.readLong();
+		textSize = in.readLong();
+		long dictionaryLength = in.readLong();
+		long[] lengths = new long[ColumnarLogWriter.COLUMNS];
+		for (int i = 0; i < lengths.length; i++) {
+			lengths[i] = in.readLong();
+		}
+		hosts.readFrom(in);
+		resources.readFrom(in);
+		commands.readFrom(in);
+		columns = new ByteBuffer[ColumnarLogWriter.COLUMNS];
+		long position = HEADER_SIZE + dictionaryLength;
+		for (int i = 0; i < columns.length; i++) {
+			if (lengths[i] > Integer.MAX_VALUE) {
+				throw new IOException("column " + i + " of " + columnarPath + " is larger than 2 GiB");
+			}
+			columns[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, lengths[i]);
+			position += lengths[i];
+		}
+	}
+
+	private BlockedSink withOriginalLine(final BlockedSink blocked, final FileChannel text) {
+		return new BlockedSink() {
+			public void add(Request request) {
+				try {
+					blocked.add(new Request(request.getTime(), request.getZoneOffset(), request.getCMD(),
+							request.getAddress(), request.getHTTPcode(), request.getBytes(),
+							originalLine(text, rowOffset)));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+
+			public void flush() throws IOException {
+				blocked.flush();
+			}
+
+			public long getCount() {
+				return blocked.getCount();
+			}
+		};
+	}
+
+	private static String originalLine(FileChannel text, long offset) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		ByteBuffer buffer = ByteBuffer.allocate(512);
+		long position = offset;
+		while (true) {
+			buffer.clear();
+			int read = text.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			int end = 0;
+			while (end < read && buffer.get(end) != '\n') {
+				end++;
+			}
+			line.write(buffer.array(), 0, end);
+			if (end < read) {
+				break;
+			}
+			position += read;
+		}
+		byte[] bytes = line.toByteArray();
+		int length = bytes.length;
+		if (length > 0 && bytes[length - 1] == '\r') {
+			length--;
+		}
+		return new String(bytes, 0, length, StandardCharsets.ISO_8859_1);
+	}
+
+	static long readVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long) (b & 0x7f) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	static long unZigZag(long value) {
+		return (value >>> 1) ^ -(value & 1);
+	}
+}
@@ -0,0 +1,224 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ColumnarLogWriter class: converts a text log once into a columnar file
+ * that ColumnarLogReader can run through many times without parsing any
+ * text. Every well formed line becomes one row, split over eight columns
+ * of variable length integers:
+ *
+ *   time     - epoch second, as the zig-zag difference to the row before
+ *   zone     - zone offset, as the zig-zag difference to the row before
+ *   host     - id of the host in the host dictionary
+ *   resource - id of the resource in the resource dictionary
+ *   command  - id of the request command in the command dictionary
+ *   status   - the HTTP status code
+ *   bytes    - the bytes sent
+ *   offset   - where the line starts in the text log, as the difference
+ *              to the line before, so blocked.txt can quote it
+ *
+ * Lines come in time order, so most time and zone values take one byte,
+ * and a host, resource or status takes one to three. The file holds
+ *
+ *   magic, version, rows, malformed lines, text log size
+ *   dictionary length, then the length of each column
+ *   the host, resource and command dictionaries, as SymbolTables
+ *   the columns, one after another
+ *
+ * Each column is written to its own temp file while the log is read and
+ * copied behind the dictionaries at the end, so memory follows the
+ * dictionaries and not the log. The finished file is moved over its name
+ * in one step.
+ *
+ * Method Name  - Description : Runtime
+ * convert      - converts the whole log and returns the number of  : O(n), where n is the number of bytes
+ *                rows written
+ * getMalformedLines - returns the number of lines that could not be : O(1)
+ *                parsed and were left out
+ * emit         - private helper that parses one line and writes its : O(k), where k is the length of the line
+ *                row
+ * writeVarLong - writes an unsigned value seven bits at a time       : O(1)
+ * zigZag       - maps a signed value to an unsigned one, keeping     : O(1)
+ *                small magnitudes small
+ ******************************/
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+class ColumnarLogWriter {
+	static final int MAGIC = 0x4c434f4c;
+	static final int VERSION = 1;
+	static final int COLUMNS = 8;
+	static final int TIME = 0;
+	static final int ZONE = 1;
+	static final int HOST = 2;
+	static final int RESOURCE = 3;
+	static final int COMMAND = 4;
+	static final int STATUS = 5;
+	static final int BYTES = 6;
+	static final int OFFSET = 7;
+	private static final int BUFFER_SIZE = 1 << 20;
+	private String textPath;
+	private String columnarPath;
+	private LogLineParser parser;
+	private ParsedLine parsed;
+	private SymbolTable hosts;
+	private SymbolTable resources;
+	private SymbolTable commands;
+	private File[] columnFiles;
+	private OutputStream[] columns;
+	private long rows;
+	private long malformedLines;
+	private long lastTime;
+	private long lastZone;
+	private long lastOffset;
+
+	public ColumnarLogWriter(String textPath, String columnarPath) {
+		this.textPath = textPath;
+		this.columnarPath = columnarPath;
+		this.parser = new LogLineParser();
+		this.parsed = new ParsedLine();
+		this.hosts = new SymbolTable();
+		this.resources = new SymbolTable();
+		this.commands = new SymbolTable();
+	}
+
+	public long convert() throws IOException {
+		File target = new File(columnarPath);
+		File directory = target.getAbsoluteFile().getParentFile();
+		columnFiles = new File[COLUMNS];
+		columns = new OutputStream[COLUMNS];
+		File tmp = new File(columnarPath + ".tmp");
+		try {
+			for (int i = 0; i < COLUMNS; i++) {
+				columnFiles[i] = File.createTempFile("column" + i + "-", ".tmp", directory);
+				columns[i] = new BufferedOutputStream(new FileOutputStream(columnFiles[i]), 1 << 16);
+			}
+			long textSize = readText();
+			for (OutputStream column : columns) {
+				column.close();
+			}
+			ByteArrayOutputStream dictionaries = new ByteArrayOutputStream();
+			DataOutputStream dictionaryOut = new DataOutputStream(dictionaries);
+			hosts.writeTo(dictionaryOut);
+			resources.writeTo(dictionaryOut);
+			commands.writeTo(dictionaryOut);
+			dictionaryOut.flush();
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeLong(rows);
+				out.writeLong(malformedLines);
+				out.writeLong(textSize);
+				out.writeLong(dictionaries.size());
+				for (File columnFile : columnFiles) {
+					out.writeLong(columnFile.length());
+				}
+				dictionaries.writeTo(out);
+				for (File columnFile : columnFiles) {
+					Files.copy(columnFile.toPath(), out);
+				}
+			}
+			Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+			return rows;
+		} finally {
+			for (int i = 0; i < COLUMNS; i++) {
+				if (columns[i] != null) {
+					columns[i].close();
+				}
+				if (columnFiles[i] != null) {
+					columnFiles[i].delete();
+				}
+			}
+			tmp.delete();
+		}
+	}
+
+	public long getMalformedLines() {
+		return malformedLines;
+	}
+
+	private long readText() throws IOException {
+		byte[] data = new byte[BUFFER_SIZE];
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		// File offset of data[0]
+		long base = 0;
+		int filled = 0;
+		try (InputStream in = new FileInputStream(textPath)) {
+			while (true) {
+				if (filled == data.length) {
+					// Single line longer than the buffer
+					data = java.util.Arrays.copyOf(data, data.length * 2);
+					buffer = ByteBuffer.wrap(data);
+				}
+				int read = in.read(data, filled, data.length - filled);
+				if (read < 0) {
+					emit(buffer, 0, filled, base);
+					return base + filled;
+				}
+				filled += read;
+				int lineStart = 0;
+				for (int i = filled - read; i < filled; i++) {
+					if (data[i] == '\n') {
+						emit(buffer, lineStart, i, base);
+						lineStart = i + 1;
+					}
+				}
+				System.arraycopy(data, lineStart, data, 0, filled - lineStart);
+				base += lineStart;
+				filled -= lineStart;
+			}
+		}
+	}
+
+	private void emit(ByteBuffer buffer, int start, int end, long base) throws IOException {
+		int lineEnd = end;
+		if (lineEnd > start && buffer.get(lineEnd - 1) == '\r') {
+			lineEnd--;
+		}
+		if (lineEnd <= start) {
+			return;
+		}
+		if (!parser.parse(buffer, start, lineEnd, parsed)) {
+			malformedLines++;
+			return;
+		}
+		long offset = base + start;
+		writeVarLong(columns[TIME], zigZag(parsed.getEpochSecond() - lastTime));
+		writeVarLong(columns[ZONE], zigZag(parsed.getZoneOffset() - lastZone));
+		writeVarLong(columns[HOST], hosts.intern(parsed.getHost()));
+		writeVarLong(columns[RESOURCE], resources.intern(parsed.getAddress()));
+		writeVarLong(columns[COMMAND], commands.intern(parsed.getCMD()));
+		writeVarLong(columns[STATUS], parsed.getHTTPcodeValue());
+		writeVarLong(columns[BYTES], parsed.getBytes());
+		writeVarLong(columns[OFFSET], offset - lastOffset);
+		lastTime = parsed.getEpochSecond();
+		lastZone = parsed.getZoneOffset();
+		lastOffset = offset;
+		rows++;
+	}
+
+	static void writeVarLong(OutputStream out, long value) throws IOException {
+		while ((value & ~0x7fL) != 0) {
+			out.write((int) ((value & 0x7f) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int) value);
+	}
+
+	static long zigZag(long value) {
+		return (value << 1) ^ (value >> 63);
+	}
+}
@@ -0,0 +1,42 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * HeavyHitter class: one host or resource reported by the top hosts or
+ * top resources feature, with its count and the error bound of that
+ * count. The count is never below the true count, and at most error above
+ * it, so the true count lies in [count - error, count]. Exact counts have
+ * an error of 0.
+ *
+ * Method Name   - Description : Runtime
+ * getKey        - gets the host or resource                        : O(1)
+ * getCount      - gets the counted requests or bytes, an upper     : O(1)
+ *                 bound of the true value
+ * getError      - gets how far the count may be above the true     : O(1)
+ *                 value
+ ******************************/
+
+class HeavyHitter {
+	private String key;
+	private long count;
+	private long error;
+
+	public HeavyHitter(String key, long count, long error) {
+		this.key = key;
+		this.count = count;
+		this.error = error;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getError() {
+		return error;
+	}
+}
@@ -0,0 +1,119 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * HyperLogLog class: estimates the number of distinct strings added to it
+ * in 2^p one byte registers, whatever that number is. The 64 bit hash of
+ * a string picks a register with its top p bits, and the register keeps
+ * the longest run of leading zeros seen in the remaining bits. The
+ * estimate has a standard error of about 1.04 / sqrt(2^p), so p = 12 uses
+ * 4 KiB and is off by about 1.6%. Small counts, where many registers are
+ * still empty, are estimated by linear counting instead.
+ *
+ * Two sketches of the same precision merge by keeping the larger of each
+ * register, which gives the sketch of the union of both.
+ *
+ * Method Name - Description : Runtime
+ * add         - adds a string                                       : O(s), where s is the length of the string
+ * addHash     - adds a string by its hash                           : O(1)
+ * merge       - adds every string of another sketch                 : O(2^p)
+ * estimate    - returns the estimated number of distinct strings    : O(2^p)
+ * copy        - returns a sketch with the same registers            : O(2^p)
+ * writeTo     - writes the registers for a Checkpoint               : O(2^p)
+ * readFrom    - replaces the registers with the ones written by     : O(2^p)
+ *               writeTo
+ * hash        - returns the 64 bit hash of a string                 : O(s)
+ ******************************/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+class HyperLogLog {
+	public static final int MIN_PRECISION = 4;
+	public static final int MAX_PRECISION = 18;
+	private int precision;
+	private byte[] registers;
+
+	public HyperLogLog(int precision) {
+		if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+			throw new IllegalArgumentException("precision must be between " + MIN_PRECISION
+					+ " and " + MAX_PRECISION + ": " + precision);
+		}
+		this.precision = precision;
+		this.registers = new byte[1 << precision];
+	}
+
+	public void add(String value) {
+		addHash(hash(value));
+	}
+
+	public void addHash(long hash) {
+		int register = (int) (hash >>> (64 - precision));
+		// The marker bit caps the run at 64 - p zeros
+		long rest = (hash << precision) | (1L << (precision - 1));
+		byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+		if (rank > registers[register]) {
+			registers[register] = rank;
+		}
+	}
+
+	public void merge(HyperLogLog other) {
+		if (other.precision != precision) {
+			throw new IllegalArgumentException("cannot merge precision " + other.precision
+					+ " into precision " + precision);
+		}
+		for (int i = 0; i < registers.length; i++) {
+			if (other.registers[i] > registers[i]) {
+				registers[i] = other.registers[i];
+			}
+		}
+	}
+
+	public long estimate() {
+		int m = registers.length;
+		double sum = 0;
+		int empty = 0;
+		for (byte register : registers) {
+			sum += Math.scalb(1.0, -register);
+			if (register == 0) {
+				empty++;
+			}
+		}
+		double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+		double estimate = alpha * m * m / sum;
+		if (estimate <= 2.5 * m && empty > 0) {
+			estimate = m * Math.log((double) m / empty);
+		}
+		return Math.round(estimate);
+	}
+
+	public HyperLogLog copy() {
+		HyperLogLog copy = new HyperLogLog(precision);
+		System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+		return copy;
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.write(registers);
+	}
+
+	public void readFrom(DataInput in) throws IOException {
+		in.readFully(registers);
+	}
+
+	public static long hash(String value) {
+		// FNV-1a over the chars, then the murmur3 finalizer to spread the bits
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash = (hash ^ value.charAt(i)) * 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,114 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LatencyHistogram class: counts durations in nanoseconds in buckets laid
+ * out like an HDR histogram. Every power of two is split into 32 equal
+ * sub-buckets, so a percentile is within about 3% of the true value over
+ * the whole range of a long, in a fixed 15 KiB. Values under 32 get a
+ * bucket each. Recording is one bucket increment and a few adds, and is
+ * safe from any number of threads.
+ *
+ * Method Name  - Description : Runtime
+ * record       - counts one duration                                : O(1)
+ * recordSince  - counts the time since a Metrics.now() and returns  : O(1)
+ *                the current time, to chain stages; does nothing
+ *                when metrics are disabled
+ * getCount     - returns the number of durations counted            : O(1)
+ * getTotal     - returns the sum of the durations counted           : O(1)
+ * getMax       - returns the longest duration counted               : O(1)
+ * percentile   - returns the duration that the given percentage of  : O(b), where b is the number of buckets
+ *                durations are at or below
+ * bucketOf     - private helper that returns the bucket of a value  : O(1)
+ * highestValue - private helper that returns the largest value a    : O(1)
+ *                bucket holds
+ ******************************/
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+class LatencyHistogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	// Exponents SUB_BITS to 62 each take SUB_BUCKETS buckets after the linear ones
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+	private AtomicLongArray counts;
+	private LongAdder count;
+	private LongAdder total;
+	private AtomicLong max;
+
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(BUCKETS);
+		this.count = new LongAdder();
+		this.total = new LongAdder();
+		this.max = new AtomicLong();
+	}
+
+	public void record(long nanos) {
+		long value = Math.max(0, nanos);
+		counts.incrementAndGet(bucketOf(value));
+		count.increment();
+		total.add(value);
+		long longest = max.get();
+		while (value > longest && !max.compareAndSet(longest, value)) {
+			longest = max.get();
+		}
+	}
+
+	public long recordSince(long start) {
+		if (!Metrics.ENABLED) {
+			return 0;
+		}
+		long now = System.nanoTime();
+		record(now - start);
+		return now;
+	}
+
+	public long getCount() {
+		return count.sum();
+	}
+
+	public long getTotal() {
+		return total.sum();
+	}
+
+	public long getMax() {
+		return max.get();
+	}
+
+	public long percentile(double percent) {
+		long counted = getCount();
+		if (counted == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percent / 100 * counted));
+		long seen = 0;
+		for (int bucket = 0; bucket < BUCKETS; bucket++) {
+			seen += counts.get(bucket);
+			if (seen >= rank) {
+				return Math.min(highestValue(bucket), getMax());
+			}
+		}
+		return getMax();
+	}
+
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long highestValue(int bucket) {
+		if (bucket < SUB_BUCKETS) {
+			return bucket;
+		}
+		int shift = bucket / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
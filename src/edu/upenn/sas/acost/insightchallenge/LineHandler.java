@@ -0,0 +1,19 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LineHandler interface: callback used by the log readers to hand
+ * each line to the parser as a slice of a byte buffer. The slice
+ * is only valid for the duration of the call.
+ *
+ * Method Name - Description : Runtime
+ * handleLine  - processes the bytes in [start, end) of buffer   : O(1)
+ *               (excluding the line terminator)
+ ******************************/
+
+import java.nio.ByteBuffer;
+
+interface LineHandler {
+	void handleLine(ByteBuffer buffer, int start, int end);
+}
@@ -0,0 +1,186 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LogFollower class: keeps a growing log open and hands every newly
+ * appended, complete line to a LineHandler. A line without its newline is
+ * held back until the rest of it has been written. Each poll also checks
+ * for log rotation:
+ *   - the path now names a different file: the old file is read to its
+ *     end first, so nothing written before the rename is lost, then the
+ *     new file is read from the start
+ *   - the file got shorter than what was read: it was truncated in place,
+ *     so it is read again from the start
+ * Every byte is only ever handed out once, so no line is counted twice.
+ * A follower can start at a given offset of the file, such as the end of
+ * what a checkpoint already covers.
+ *
+ * Method Name - Description : Runtime
+ * poll        - reads all complete lines appended since the last    : O(b), where b is the number of new bytes
+ *               poll and handles rotation
+ * getPosition - returns the offset just past the last line handed   : O(1)
+ *               out, where a later follower can start
+ * finish      - hands out the incomplete last line as well, for a   : O(k), where k is the length of the line
+ *               log that is not written to any more
+ * close       - closes the open file                                : O(1)
+ * drain       - private helper that reads the open file to its end  : O(b)
+ * emitLines   - private helper that hands out the complete lines in : O(b)
+ *               the buffer and keeps the incomplete rest
+ * open        - private helper that opens the file at the path      : O(1)
+ * fileKey     - private helper that returns the identity of the     : O(1)
+ *               file at the path, or null if there is none or the
+ *               file system has no file keys
+ ******************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+
+class LogFollower {
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private Path path;
+	private LineHandler handler;
+	private FileChannel channel;
+	private Object openFileKey;
+	private long position;
+	// Where the first file opened is read from, later ones start at 0
+	private long startPosition;
+	private ByteBuffer buffer;
+
+	public LogFollower(String path, LineHandler handler) {
+		this(path, handler, 0);
+	}
+
+	public LogFollower(String path, LineHandler handler, long startPosition) {
+		this.path = Paths.get(path);
+		this.handler = handler;
+		this.startPosition = startPosition;
+		this.buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+	}
+
+	public long poll() throws IOException {
+		if (channel == null && !open()) {
+			return 0;
+		}
+		long lines = drain();
+		if (!Files.exists(path)) {
+			// Rotated away and not recreated yet
+			return lines;
+		}
+		Object currentKey = fileKey();
+		if (openFileKey != null && currentKey != null && !openFileKey.equals(currentKey)) {
+			// Replaced: the old file is finished, so its last line is complete
+			lines += drain();
+			lines += emitLines(true);
+			close();
+			if (open()) {
+				lines += drain();
+			}
+		} else if (channel.size() < position) {
+			// Truncated in place, whatever was left of the old line is gone
+			buffer.clear();
+			position = 0;
+			lines += drain();
+		}
+		return lines;
+	}
+
+	public long getPosition() {
+		// The buffer only holds the incomplete line
+		return position - buffer.position();
+	}
+
+	public long finish() {
+		return emitLines(true);
+	}
+
+	public void close() throws IOException {
+		if (channel != null) {
+			channel.close();
+			channel = null;
+		}
+	}
+
+	private long drain() throws IOException {
+		long lines = 0;
+		while (true) {
+			if (!buffer.hasRemaining()) {
+				// Single line longer than the buffer
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			}
+			long startTime = Metrics.now();
+			int read = channel.read(buffer, position);
+			Metrics.READ.recordSince(startTime);
+			if (read <= 0) {
+				return lines;
+			}
+			Metrics.BYTES_READ.add(read);
+			position += read;
+			lines += emitLines(false);
+		}
+	}
+
+	private long emitLines(boolean endOfFile) {
+		long lines = 0;
+		int filled = buffer.position();
+		int lineStart = 0;
+		for (int i = 0; i < filled; i++) {
+			if (buffer.get(i) == '\n') {
+				lines += emit(lineStart, i);
+				lineStart = i + 1;
+			}
+		}
+		if (endOfFile) {
+			lines += emit(lineStart, filled);
+			lineStart = filled;
+		}
+		// Keep the incomplete line at the front of the buffer
+		for (int i = lineStart; i < filled; i++) {
+			buffer.put(i - lineStart, buffer.get(i));
+		}
+		buffer.position(filled - lineStart);
+		return lines;
+	}
+
+	private int emit(int start, int end) {
+		if (end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		if (end <= start) {
+			return 0;
+		}
+		handler.handleLine(buffer, start, end);
+		return 1;
+	}
+
+	private boolean open() throws IOException {
+		try {
+			channel = FileChannel.open(path, StandardOpenOption.READ);
+		} catch (NoSuchFileException e) {
+			return false;
+		}
+		openFileKey = fileKey();
+		position = startPosition;
+		startPosition = 0;
+		buffer.clear();
+		return true;
+	}
+
+	private Object fileKey() throws IOException {
+		try {
+			return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+		} catch (NoSuchFileException e) {
+			return null;
+		}
+	}
+}
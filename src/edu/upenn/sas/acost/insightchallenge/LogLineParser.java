@@ -0,0 +1,135 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LogLineParser class: single pass, cursor based tokenizer for lines in
+ * the common log format
+ *
+ *   host - - [01/Jul/1995:00:00:01 -0400] "GET /login HTTP/1.0" 401 1420
+ *
+ * The line is scanned once from left to right and the field boundaries
+ * and numeric values are written into a reusable ParsedLine, so parsing
+ * does not allocate. The timestamp is decoded to epoch seconds by a
+ * TimestampDecoder. A "-" is only treated as "no bytes" in the bytes
+ * field; hosts and resources are kept exactly as they appear.
+ *
+ * Method Name - Description : Runtime
+ * parse       - tokenizes [start, end) of buffer into the given   : O(k), where k is the length of the line
+ *               ParsedLine, returns false if the line is malformed
+ * indexOf     - private helper that finds the next occurrence of  : O(k)
+ *               a byte, or -1
+ ******************************/
+
+import java.nio.ByteBuffer;
+
+class LogLineParser {
+	private TimestampDecoder decoder;
+
+	public LogLineParser() {
+		this.decoder = new TimestampDecoder();
+	}
+
+	public boolean parse(ByteBuffer buffer, int start, int end, ParsedLine out) {
+		out.setLine(buffer, start, end);
+		// Host runs up to the first space
+		int cursor = indexOf(buffer, start, end, (byte) ' ');
+		if (cursor <= start) {
+			return false;
+		}
+		out.setHost(start, cursor);
+
+		// Timestamp and zone offset inside the brackets
+		int open = indexOf(buffer, cursor, end, (byte) '[');
+		if (open < 0) {
+			return false;
+		}
+		int close = indexOf(buffer, open + 1, end, (byte) ']');
+		if (close < 0) {
+			return false;
+		}
+		int space = indexOf(buffer, open + 1, close, (byte) ' ');
+		if (space < 0) {
+			out.setTime(open + 1, close);
+			out.setZone(close, close);
+		} else {
+			out.setTime(open + 1, space);
+			out.setZone(space + 1, close);
+		}
+		long local = decoder.decodeLocal(buffer, out.getTimeStart(), out.getTimeEnd());
+		int zoneOffset = decoder.decodeZone(buffer, out.getZoneStart(), out.getZoneEnd());
+		if (local == TimestampDecoder.INVALID || zoneOffset == TimestampDecoder.INVALID_ZONE) {
+			return false;
+		}
+		out.setEpochSecond(local - zoneOffset, zoneOffset);
+
+		// Method and resource inside the quotes, the protocol is optional
+		int quote = indexOf(buffer, close + 1, end, (byte) '"');
+		if (quote < 0) {
+			return false;
+		}
+		cursor = quote + 1;
+		int tokenStart = cursor;
+		while (cursor < end && buffer.get(cursor) != ' ' && buffer.get(cursor) != '"') {
+			cursor++;
+		}
+		out.setCMD(tokenStart, cursor);
+		if (cursor < end && buffer.get(cursor) == ' ') {
+			cursor++;
+		}
+		tokenStart = cursor;
+		while (cursor < end && buffer.get(cursor) != ' ' && buffer.get(cursor) != '"') {
+			cursor++;
+		}
+		out.setAddress(tokenStart, cursor);
+		cursor = indexOf(buffer, cursor, end, (byte) '"');
+		if (cursor < 0) {
+			return false;
+		}
+		cursor++;
+
+		// Status code
+		while (cursor < end && buffer.get(cursor) == ' ') {
+			cursor++;
+		}
+		int code = 0;
+		tokenStart = cursor;
+		while (cursor < end && buffer.get(cursor) >= '0' && buffer.get(cursor) <= '9') {
+			code = code * 10 + (buffer.get(cursor) - '0');
+			cursor++;
+		}
+		if (cursor == tokenStart) {
+			return false;
+		}
+		out.setHTTPcode(code);
+
+		// Bytes, "-" means nothing was sent
+		while (cursor < end && buffer.get(cursor) == ' ') {
+			cursor++;
+		}
+		if (cursor < end && buffer.get(cursor) == '-') {
+			out.setBytes(0, false);
+			return true;
+		}
+		int bytes = 0;
+		tokenStart = cursor;
+		while (cursor < end && buffer.get(cursor) >= '0' && buffer.get(cursor) <= '9') {
+			bytes = bytes * 10 + (buffer.get(cursor) - '0');
+			cursor++;
+		}
+		if (cursor == tokenStart) {
+			return false;
+		}
+		out.setBytes(bytes, true);
+		return true;
+	}
+
+	private int indexOf(ByteBuffer buffer, int from, int to, byte b) {
+		for (int i = from; i < to; i++) {
+			if (buffer.get(i) == b) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,383 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * LoginFailureDetector class: applies the failed login rules. Three failed
+ * logins (a 401 on /login) from a host within 20 seconds block every
+ * request of that host for the next 5 minutes; a successful login before
+ * the third failure clears the failures.
+ *
+ * Only hosts with failures or a block are kept, each in one slot of a
+ * table of primitive arrays: the time its failures started or its block
+ * began and its number of failures. Hosts are found by open addressing
+ * over an int[] of ids, as in SymbolTable. Every kept host is due to
+ * expire 20 seconds after its first failure or 5 minutes after its block,
+ * at which point its state can no longer change the outcome of a request,
+ * so a TimingWheel evicts it and its slot is reused. Memory follows the
+ * largest number of hosts failing or blocked at the same time, not the
+ * number of hosts in the log.
+ *
+ * A request is checked by its host, time, status code and whether it was
+ * for LOGIN, which the caller finds out once per resource id or straight
+ * from the bytes of the line, so the check compares no Strings but the
+ * host when it is kept.
+ * 
+ * Lines are expected in time order, as the log is written. A line older
+ * than the latest one is checked against the hosts still kept at that
+ * latest time.
+ *
+ * Method Name - Description : Runtime
+ * check       - applies the rules to a request and returns true if  : O(1) amortized
+ *               it has to be blocked
+ * isLogin     - returns true if a resource is LOGIN                 : O(1)
+ * merge       - adds the hosts of a detector that saw other hosts,  : O(c), where c is the capacity of the other detector
+ *               such as another shard of the same log
+ * size        - returns the number of hosts failing or blocked      : O(1)
+ * getBlockedHosts - returns the hosts blocked at the time of the    : O(c)
+ *               latest request checked, in no particular order
+ * writeTo     - writes the hosts kept and the clock for a           : O(c)
+ *               Checkpoint
+ * readFrom    - keeps the hosts written by writeTo in an empty      : O(h), where h is the number of hosts written
+ *               detector
+ * add         - private helper that keeps a new host                : O(1) amortized
+ * evict       - private helper that forgets a host                  : O(1) expected
+ * slotOf      - private helper that returns the slot holding a      : O(1) expected
+ *               host, or the empty slot it would go in
+ * rehash      - private helper that doubles the slot table          : O(c), where c is the capacity
+ ******************************/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class LoginFailureDetector {
+	static final String LOGIN = "/login";
+	static final int FAILED_LOGIN = 401;
+	private static final long FAILED_LOGIN_WINDOW = 20;
+	private static final long BLOCK_DURATION = 300;
+	private static final int FAILURES_TO_BLOCK = 3;
+	private static final int DEFAULT_CAPACITY = 64;
+	// Host, hash, start of the failures or the block and failures of each id
+	private String[] hosts;
+	private int[] hashes;
+	private long[] since;
+	private int[] failures;
+	// id + 1 of the host in each slot, 0 for an empty slot
+	private int[] slots;
+	private int[] freeIds;
+	private int freeCount;
+	private int allocated;
+	private int size;
+	private TimingWheel wheel;
+
+	public LoginFailureDetector() {
+		this.hosts = new String[DEFAULT_CAPACITY];
+		this.hashes = new int[DEFAULT_CAPACITY];
+		this.since = new long[DEFAULT_CAPACITY];
+		this.failures = new int[DEFAULT_CAPACITY];
+		this.slots = new int[DEFAULT_CAPACITY * 2];
+		this.freeIds = new int[DEFAULT_CAPACITY];
+		this.wheel = new TimingWheel(DEFAULT_CAPACITY);
+	}
+
+	public boolean check(String host, long time, boolean login, int status) {
+		wheel.advanceTo(time, this);
+		int hash = mix(host.hashCode());
+		int slot = slotOf(host, hash);
+		int id = slots[slot] - 1;
+		if (id >= 0 && failures[id] >= FAILURES_TO_BLOCK) {
+			return true;
+		}
+		if (!login) {
+			return false;
+		}
+		if (status != FAILED_LOGIN) {
+			if (id >= 0) {
+				evict(id);
+			}
+			return false;
+		}
+		if (id < 0) {
+			id = add(host, hash, slot);
+		}
+		if (failures[id] == 0 || time - since[id] >= FAILED_LOGIN_WINDOW) {
+			since[id] = time;
+			failures[id] = 1;
+			wheel.schedule(id, time + FAILED_LOGIN_WINDOW);
+		} else if (++failures[id] >= FAILURES_TO_BLOCK) {
+			since[id] = time;
+			wheel.schedule(id, time + BLOCK_DURATION);
+		}
+		return false;
+	}
+
+	public static boolean isLogin(String resource) {
+		return LOGIN.equals(resource);
+	}
+
+	public void merge(LoginFailureDetector other) {
+		wheel.advanceTo(Math.max(wheel.now, other.wheel.now), this);
+		for (int otherId = 0; otherId < other.allocated; otherId++) {
+			String host = other.hosts[otherId];
+			// Skip hosts that are free or due to expire by now
+			if (host == null || other.wheel.expiries[otherId] <= wheel.now) {
+				continue;
+			}
+			int hash = other.hashes[otherId];
+			int slot = slotOf(host, hash);
+			int id = slots[slot] - 1;
+			if (id < 0) {
+				id = add(host, hash, slot);
+			}
+			since[id] = other.since[otherId];
+			failures[id] = other.failures[otherId];
+			wheel.schedule(id, other.wheel.expiries[otherId]);
+		}
+	}
+	
+	public int size() {
+		return size;
+	}
+
+	public List<BlockedHost> getBlockedHosts() {
+		List<BlockedHost> blocked = new ArrayList<BlockedHost>();
+		for (int id = 0; id < allocated; id++) {
+			// A block that ended is only evicted when a later request is checked
+			if (hosts[id] != null && failures[id] >= FAILURES_TO_BLOCK 
+					&& since[id] + BLOCK_DURATION > wheel.now) {
+				blocked.add(new BlockedHost(hosts[id], since[id], since[id] + BLOCK_DURATION));
+			}
+		}
+		return blocked;
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeLong(wheel.now);
+		out.writeInt(size);
+		for (int id = 0; id < allocated; id++) {
+			if (hosts[id] != null) {
+				Checkpoint.writeString(out, hosts[id]);
+				out.writeLong(since[id]);
+				out.writeInt(failures[id]);
+				out.writeLong(wheel.expiries[id]);
+			}
+		}
+	}
+
+	public void readFrom(DataInput in) throws IOException {
+		wheel.advanceTo(in.readLong(), this);
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			String host = Checkpoint.readString(in);
+			int hash = mix(host.hashCode());
+			int id = add(host, hash, slotOf(host, hash));
+			since[id] = in.readLong();
+			failures[id] = in.readInt();
+			wheel.schedule(id, in.readLong());
+		}
+	}
+
+	private int add(String host, int hash, int slot) {
+		int id;
+		if (freeCount > 0) {
+			id = freeIds[--freeCount];
+		} else {
+			if (allocated == hosts.length) {
+				int capacity = allocated * 2;
+				hosts = Arrays.copyOf(hosts, capacity);
+				hashes = Arrays.copyOf(hashes, capacity);
+				since = Arrays.copyOf(since, capacity);
+				failures = Arrays.copyOf(failures, capacity);
+				freeIds = Arrays.copyOf(freeIds, capacity);
+				wheel.grow(capacity);
+			}
+			id = allocated++;
+		}
+		hosts[id] = host;
+		hashes[id] = hash;
+		failures[id] = 0;
+		slots[slot] = id + 1;
+		size++;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	private void evict(int id) {
+		wheel.cancel(id);
+		int mask = slots.length - 1;
+		int hole = hashes[id] & mask;
+		while (slots[hole] != id + 1) {
+			hole = (hole + 1) & mask;
+		}
+		slots[hole] = 0;
+		// Move back every later id of the run that probed past the hole
+		int slot = hole;
+		while (true) {
+			slot = (slot + 1) & mask;
+			if (slots[slot] == 0) {
+				break;
+			}
+			int home = hashes[slots[slot] - 1] & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				slots[hole] = slots[slot];
+				slots[slot] = 0;
+				hole = slot;
+			}
+		}
+		hosts[id] = null;
+		freeIds[freeCount++] = id;
+		size--;
+	}
+
+	private int slotOf(String host, int hash) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != 0) {
+			int id = slots[slot] - 1;
+			if (hashes[id] == hash && hosts[id].equals(host)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < allocated; id++) {
+			if (hosts[id] == null) {
+				continue;
+			}
+			int slot = hashes[id] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+
+	/*
+	 * Two level hierarchical timing wheel over the ids of the detector. The
+	 * first level has one list per second for the next 64 seconds, the second
+	 * one list per 64 seconds for the next 4096 seconds. When the clock enters
+	 * a new 64 seconds, their second level list is spread over the first
+	 * level, and every id of the list of the current second is evicted. Ids
+	 * are linked through int arrays, so scheduling and cancelling is O(1) and
+	 * nothing is allocated per host. A clock jump with nothing scheduled is
+	 * taken in one step, and since nothing is due more than 5 minutes ahead,
+	 * any other jump takes at most 300 ticks.
+	 */
+	private static class TimingWheel {
+		private static final int SLOTS = 64;
+		private static final int SHIFT = 6;
+		private static final int MASK = SLOTS - 1;
+		private static final int NONE = -1;
+		private int[] heads;
+		private int[] next;
+		private int[] prev;
+		// List each id is linked into, NONE if it is not scheduled
+		private int[] lists;
+		private long[] expiries;
+		private long now;
+		private int count;
+
+		TimingWheel(int capacity) {
+			this.heads = new int[2 * SLOTS];
+			Arrays.fill(heads, NONE);
+			this.next = new int[capacity];
+			this.prev = new int[capacity];
+			this.lists = new int[capacity];
+			Arrays.fill(lists, NONE);
+			this.expiries = new long[capacity];
+			this.now = Long.MIN_VALUE;
+		}
+
+		void grow(int capacity) {
+			int old = lists.length;
+			next = Arrays.copyOf(next, capacity);
+			prev = Arrays.copyOf(prev, capacity);
+			lists = Arrays.copyOf(lists, capacity);
+			Arrays.fill(lists, old, capacity, NONE);
+			expiries = Arrays.copyOf(expiries, capacity);
+		}
+
+		void schedule(int id, long expiry) {
+			cancel(id);
+			expiries[id] = Math.max(expiry, now + 1);
+			link(id, listOf(expiries[id]));
+		}
+
+		void cancel(int id) {
+			if (lists[id] != NONE) {
+				unlink(id);
+			}
+		}
+
+		void advanceTo(long time, LoginFailureDetector detector) {
+			while (now < time) {
+				if (count == 0) {
+					now = time;
+					return;
+				}
+				now++;
+				if ((now & MASK) == 0) {
+					int list = SLOTS + (int) ((now >> SHIFT) & MASK);
+					while (heads[list] != NONE) {
+						int id = heads[list];
+						unlink(id);
+						link(id, listOf(expiries[id]));
+					}
+				}
+				int list = (int) (now & MASK);
+				while (heads[list] != NONE) {
+					detector.evict(heads[list]);
+				}
+			}
+		}
+
+		private int listOf(long expiry) {
+			if (expiry - now < SLOTS) {
+				return (int) (expiry & MASK);
+			}
+			long ahead = (expiry >> SHIFT) - (now >> SHIFT);
+			// Anything further ahead waits in the last list and is spread again
+			return SLOTS + (int) (((now >> SHIFT) + Math.min(ahead, SLOTS - 1)) & MASK);
+		}
+
+		private void link(int id, int list) {
+			prev[id] = NONE;
+			next[id] = heads[list];
+			if (heads[list] != NONE) {
+				prev[heads[list]] = id;
+			}
+			heads[list] = id;
+			lists[id] = list;
+			count++;
+		}
+
+		private void unlink(int id) {
+			if (prev[id] != NONE) {
+				next[prev[id]] = next[id];
+			} else {
+				heads[lists[id]] = next[id];
+			}
+			if (next[id] != NONE) {
+				prev[next[id]] = prev[id];
+			}
+			lists[id] = NONE;
+			count--;
+		}
+	}
+}
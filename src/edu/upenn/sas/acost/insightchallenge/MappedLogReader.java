@@ -0,0 +1,94 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * MappedLogReader class: reads the log through FileChannel.map and scans
+ * for newline boundaries directly over the mapped bytes. Every line is
+ * passed to a LineHandler as a slice of the mapped window, so no charset
+ * decoding or per-line copy happens in the reader. Files larger than 2 GB
+ * are read by remapping consecutive windows; a line that straddles two
+ * windows is picked up again at the start of the next window.
+ *
+ * Method Name - Description : Runtime
+ * read        - reads every line of the file                    : O(n), where n is the number of bytes
+ * readRange   - reads every line in [from, to) of an open        : O(n), where n is the number of bytes
+ *               channel. from and to must be line aligned
+ * emit        - private helper that strips a trailing '\r' and   : O(1)
+ *               hands a non-empty line to the handler
+ ******************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+class MappedLogReader {
+	private static final long DEFAULT_WINDOW_SIZE = 128L * 1024 * 1024;
+	private String path;
+	private long windowSize;
+
+	public MappedLogReader(String path) {
+		this(path, DEFAULT_WINDOW_SIZE);
+	}
+
+	public MappedLogReader(String path, long windowSize) {
+		this.path = path;
+		this.windowSize = windowSize;
+	}
+
+	public long read(LineHandler handler) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			return readRange(channel, 0, channel.size(), handler);
+		}
+	}
+
+	public long readRange(FileChannel channel, long from, long to, LineHandler handler) throws IOException {
+		long lines = 0;
+		long position = from;
+		long window = windowSize;
+		while (position < to) {
+			long size = Math.min(window, to - position);
+			long startTime = Metrics.now();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+			Metrics.READ.recordSince(startTime);
+			long windowStart = position;
+			int limit = (int) size;
+			int lineStart = 0;
+			for (int i = 0; i < limit; i++) {
+				if (buffer.get(i) == '\n') {
+					lines += emit(buffer, lineStart, i, handler);
+					lineStart = i + 1;
+				}
+			}
+			if (position + size >= to) {
+				// Last window, a final line without a newline is still a line
+				lines += emit(buffer, lineStart, limit, handler);
+				position = to;
+			} else if (lineStart == 0) {
+				// Single line longer than the window, remap a larger one
+				if (window >= Integer.MAX_VALUE) {
+					throw new IOException("Line at offset " + position + " is longer than 2 GB");
+				}
+				window = Math.min(window * 2, Integer.MAX_VALUE);
+			} else {
+				position += lineStart;
+			}
+			Metrics.BYTES_READ.add(position - windowStart);
+		}
+		return lines;
+	}
+
+	private int emit(ByteBuffer buffer, int start, int end, LineHandler handler) {
+		if (end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		if (end <= start) {
+			return 0;
+		}
+		handler.handleLine(buffer, start, end);
+		return 1;
+	}
+}
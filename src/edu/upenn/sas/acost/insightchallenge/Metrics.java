@@ -0,0 +1,227 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * Metrics class: counters, latency histograms and gauges for every stage
+ * of a run, so a slow run shows where its time went:
+ *
+ *   read      - each read of the log (each map for a MappedLogReader),
+ *               with the bytes read
+ *   parse     - each line through LogLineParser, with the lines and the
+ *               malformed lines
+ *   log       - each line or request logged into the Server
+ *   rank      - each ranking made for an output file
+ *   write     - writing each output file
+ *
+ * Gauges read a value when they are asked, such as the number of hosts of
+ * the server. While running, everything is an attribute of the MBean
+ * edu.upenn.sas.acost.insightchallenge:type=Metrics, and at exit a
+ * summary goes to the file given to install.
+ *
+ * Metrics are on only when the system property insight.metrics is true
+ * when this class is first used; Main sets it for --metrics. ENABLED is a
+ * static final, so with metrics off the JIT drops every check of it and
+ * the hot path keeps no timer, counter or clock read.
+ *
+ * Method Name  - Description : Runtime
+ * now          - returns System.nanoTime(), or 0 when disabled      : O(1)
+ * gauge        - registers a gauge under a name                     : O(1)
+ * install      - registers the MBean and writes the summary to a    : O(1)
+ *                file at exit
+ * writeSummary - writes every counter, gauge and histogram          : O(m), where m is the number of metrics
+ ******************************/
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanOperationInfo;
+import javax.management.ObjectName;
+
+final class Metrics {
+	static final String PROPERTY = "insight.metrics";
+	static final boolean ENABLED = Boolean.getBoolean(PROPERTY);
+	private static final String OBJECT_NAME = "edu.upenn.sas.acost.insightchallenge:type=Metrics";
+	private static final Map<String, Counter> COUNTERS = new LinkedHashMap<String, Counter>();
+	private static final Map<String, LatencyHistogram> HISTOGRAMS = new LinkedHashMap<String, LatencyHistogram>();
+	private static final Map<String, Gauge> GAUGES = new LinkedHashMap<String, Gauge>();
+	static final Counter BYTES_READ = counter("bytes_read");
+	static final Counter LINES = counter("lines");
+	static final Counter MALFORMED = counter("malformed_lines");
+	static final LatencyHistogram READ = histogram("read");
+	static final LatencyHistogram PARSE = histogram("parse");
+	static final LatencyHistogram LOG = histogram("log");
+	static final LatencyHistogram RANK = histogram("rank");
+	static final LatencyHistogram WRITE = histogram("write");
+	private static final long STARTED = System.nanoTime();
+
+	private Metrics() {
+	}
+
+	public static long now() {
+		return ENABLED ? System.nanoTime() : 0;
+	}
+
+	public static synchronized void gauge(String name, Gauge gauge) {
+		GAUGES.put(name, gauge);
+	}
+
+	public static void install(final String summaryPath) {
+		try {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(),
+					new ObjectName(OBJECT_NAME));
+		} catch (JMException e) {
+			System.err.println("Metrics are not available over JMX: " + e.getMessage());
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			public void run() {
+				try (Writer out = new OutputStreamWriter(new FileOutputStream(summaryPath), StandardCharsets.UTF_8)) {
+					writeSummary(out);
+				} catch (IOException e) {
+					System.err.println("Could not write " + summaryPath + ": " + e.getMessage());
+				}
+			}
+		});
+	}
+
+	public static void writeSummary(Writer out) throws IOException {
+		double seconds = (System.nanoTime() - STARTED) / 1e9;
+		out.write(String.format("elapsed_seconds %.3f%n", seconds));
+		for (Map.Entry<String, Counter> counter : COUNTERS.entrySet()) {
+			long value = counter.getValue().get();
+			out.write(String.format("counter %s %d (%.0f/s)%n", counter.getKey(), value, value / seconds));
+		}
+		for (Map.Entry<String, Long> gauge : gaugeValues().entrySet()) {
+			out.write("gauge " + gauge.getKey() + " " + gauge.getValue() + "\n");
+		}
+		out.write("histogram name count total_ms mean_ns p50_ns p90_ns p99_ns p999_ns max_ns\n");
+		for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			long count = histogram.getCount();
+			out.write(String.format("histogram %s %d %.1f %d %d %d %d %d %d%n", entry.getKey(), count,
+					histogram.getTotal() / 1e6, count == 0 ? 0 : histogram.getTotal() / count,
+					histogram.percentile(50), histogram.percentile(90), histogram.percentile(99),
+					histogram.percentile(99.9), histogram.getMax()));
+		}
+	}
+
+	private static Counter counter(String name) {
+		Counter counter = new Counter();
+		COUNTERS.put(name, counter);
+		return counter;
+	}
+
+	private static LatencyHistogram histogram(String name) {
+		LatencyHistogram histogram = new LatencyHistogram();
+		HISTOGRAMS.put(name, histogram);
+		return histogram;
+	}
+
+	private static synchronized Map<String, Long> gaugeValues() {
+		Map<String, Long> values = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Gauge> gauge : GAUGES.entrySet()) {
+			values.put(gauge.getKey(), gauge.getValue().value());
+		}
+		return values;
+	}
+
+	// Every metric as a flat name and value, as the MBean shows them
+	private static Map<String, Long> attributes() {
+		Map<String, Long> attributes = new LinkedHashMap<String, Long>();
+		for (Map.Entry<String, Counter> counter : COUNTERS.entrySet()) {
+			attributes.put(counter.getKey(), counter.getValue().get());
+		}
+		attributes.putAll(gaugeValues());
+		for (Map.Entry<String, LatencyHistogram> entry : HISTOGRAMS.entrySet()) {
+			LatencyHistogram histogram = entry.getValue();
+			attributes.put(entry.getKey() + "_count", histogram.getCount());
+			attributes.put(entry.getKey() + "_total_ns", histogram.getTotal());
+			attributes.put(entry.getKey() + "_p50_ns", histogram.percentile(50));
+			attributes.put(entry.getKey() + "_p99_ns", histogram.percentile(99));
+			attributes.put(entry.getKey() + "_max_ns", histogram.getMax());
+		}
+		return attributes;
+	}
+
+	interface Gauge {
+		long value();
+	}
+
+	static final class Counter {
+		private LongAdder adder = new LongAdder();
+
+		void increment() {
+			if (ENABLED) {
+				adder.increment();
+			}
+		}
+
+		void add(long amount) {
+			if (ENABLED) {
+				adder.add(amount);
+			}
+		}
+
+		long get() {
+			return adder.sum();
+		}
+	}
+
+	private static class MetricsMBean implements DynamicMBean {
+		public Object getAttribute(String name) throws AttributeNotFoundException {
+			Long value = attributes().get(name);
+			if (value == null) {
+				throw new AttributeNotFoundException(name);
+			}
+			return value;
+		}
+
+		public AttributeList getAttributes(String[] names) {
+			Map<String, Long> attributes = attributes();
+			AttributeList list = new AttributeList();
+			for (String name : names) {
+				if (attributes.containsKey(name)) {
+					list.add(new Attribute(name, attributes.get(name)));
+				}
+			}
+			return list;
+		}
+
+		public MBeanInfo getMBeanInfo() {
+			List<MBeanAttributeInfo> infos = new ArrayList<MBeanAttributeInfo>();
+			for (String name : attributes().keySet()) {
+				infos.add(new MBeanAttributeInfo(name, "long", name, true, false, false));
+			}
+			return new MBeanInfo(Metrics.class.getName(), "Log pipeline metrics",
+					infos.toArray(new MBeanAttributeInfo[infos.size()]), null, new MBeanOperationInfo[0], null);
+		}
+
+		public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+			throw new AttributeNotFoundException(attribute.getName() + " is read only");
+		}
+
+		public AttributeList setAttributes(AttributeList attributes) {
+			return new AttributeList();
+		}
+
+		public Object invoke(String action, Object[] params, String[] signature) {
+			throw new UnsupportedOperationException(action);
+		}
+	}
+}
@@ -0,0 +1,136 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * OutputFile class: writes one output file through a FileChannel and a
+ * large direct buffer. Strings are written one byte per char, as
+ * ISO-8859-1 like the log is read, so a blocked line comes out as the
+ * exact bytes it came in as; they are encoded into a small heap array
+ * and copied into the buffer in bulk. Numbers go straight into the buffer
+ * as digits, with no String in between. Everything is written to NAME.tmp,
+ * and commit moves it over NAME in one step, so a reader of NAME sees
+ * either the old file or the complete new one. A file closed without
+ * commit is deleted.
+ *
+ * Method Name - Description : Runtime
+ * append      - appends a string, a char or a number                : O(k), where k is the length of what is appended
+ * commit      - writes what is buffered and moves the file into      : O(b), where b is the buffered bytes
+ *               place
+ * close       - closes the file, deleting it unless committed       : O(1)
+ * ensure      - private helper that makes room for n more bytes      : O(b)
+ * flush       - private helper that writes the buffer to the file   : O(b)
+ ******************************/
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+class OutputFile implements Closeable {
+	private static final int BUFFER_SIZE = 1 << 20;
+	// Long.MIN_VALUE has 19 digits and a sign
+	private static final int MAX_DIGITS = 20;
+	private File target;
+	private File tmp;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	private byte[] digits;
+	private byte[] scratch;
+	private boolean committed;
+
+	public OutputFile(String directory, String name) throws IOException {
+		this.target = new File(directory, name);
+		this.tmp = new File(directory, name + ".tmp");
+		this.channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.digits = new byte[MAX_DIGITS];
+		this.scratch = new byte[256];
+	}
+
+	public OutputFile append(String value) throws IOException {
+		int length = value.length();
+		if (length > buffer.capacity()) {
+			flush();
+			ByteBuffer bytes = ByteBuffer.wrap(value.getBytes(StandardCharsets.ISO_8859_1));
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+			return this;
+		}
+		ensure(length);
+		// Encoded into a heap array first, one bulk copy beats a put per byte
+		if (scratch.length < length) {
+			scratch = new byte[Math.max(length, scratch.length * 2)];
+		}
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			scratch[i] = c <= 0xff ? (byte) c : (byte) '?';
+		}
+		buffer.put(scratch, 0, length);
+		return this;
+	}
+
+	public OutputFile append(char value) throws IOException {
+		ensure(1);
+		buffer.put(value <= 0xff ? (byte) value : (byte) '?');
+		return this;
+	}
+
+	public OutputFile append(long value) throws IOException {
+		ensure(MAX_DIGITS);
+		if (value == 0) {
+			buffer.put((byte) '0');
+			return this;
+		}
+		int count = 0;
+		// Negative digits, so Long.MIN_VALUE needs no special case
+		long rest = value < 0 ? value : -value;
+		while (rest != 0) {
+			digits[count++] = (byte) ('0' - rest % 10);
+			rest /= 10;
+		}
+		if (value < 0) {
+			buffer.put((byte) '-');
+		}
+		while (count > 0) {
+			buffer.put(digits[--count]);
+		}
+		return this;
+	}
+
+	public void commit() throws IOException {
+		flush();
+		channel.close();
+		Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		committed = true;
+	}
+
+	public void close() throws IOException {
+		channel.close();
+		if (!committed) {
+			tmp.delete();
+		}
+	}
+
+	private void ensure(int bytes) throws IOException {
+		if (buffer.remaining() < bytes) {
+			flush();
+		}
+	}
+
+	private void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,87 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * OutputStage class: writes output files in parallel, one OutputFile per
+ * file on a pool of up to the given number of threads. What goes into a
+ * file is given as a Content, which must only read data that stays
+ * unchanged until finish returns; the rankings are made before the files
+ * are added, so the contents only format them. finish waits for every
+ * file and throws the first error, after every file has been committed or
+ * deleted.
+ *
+ * Method Name - Description : Runtime
+ * add         - starts writing a file                               : O(1)
+ * finish      - waits for every file and stops the threads          : O(b), where b is the bytes of the largest file
+ ******************************/
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+class OutputStage {
+	private String directory;
+	private ExecutorService pool;
+	private List<Future<Void>> files;
+
+	public OutputStage(String directory, int threads) {
+		this.directory = directory;
+		this.pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, "output");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		this.files = new ArrayList<Future<Void>>();
+	}
+
+	public void add(final String name, final Content content) {
+		files.add(pool.submit(new Callable<Void>() {
+			public Void call() throws IOException {
+				long startTime = Metrics.now();
+				try (OutputFile out = new OutputFile(directory, name)) {
+					content.writeTo(out);
+					out.commit();
+				}
+				Metrics.WRITE.recordSince(startTime);
+				return null;
+			}
+		}));
+	}
+
+	public void finish() throws IOException {
+		IOException failure = null;
+		try {
+			for (Future<Void> file : files) {
+				try {
+					file.get();
+				} catch (ExecutionException e) {
+					if (failure == null) {
+						failure = e.getCause() instanceof IOException ? (IOException) e.getCause()
+								: new IOException(e.getCause());
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			failure = new IOException("Interrupted while writing the output files", e);
+		} finally {
+			pool.shutdown();
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	interface Content {
+		void writeTo(OutputFile out) throws IOException;
+	}
+}
@@ -0,0 +1,236 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ParallelLogProcessor class: splits the log into line aligned byte ranges
+ * and logs every range into its own partial Server on a fork-join worker.
+ * Partials of neighbouring ranges are merged on the way back up, so the
+ * host counts, resource bandwidth and per-second map come out the same as
+ * a sequential run.
+ *
+ * Blocked logins depend on the order of each host's requests, so they are
+ * rebuilt after the merge. Every chunk keeps the requests whose blocked
+ * status could depend on the chunks before it:
+ *   - every request in the first five minutes of the chunk, since a block
+ *     or failed logins carried over from before can only last that long
+ *   - every request of a host less than five minutes after its latest
+ *     failed login in the chunk, since any block it could be part of
+ *     ends by then
+ * A host with no failed login in the five minutes before a request has
+ * no failures and no block left at that time, so any other request is
+ * provably not blocked and cannot change the outcome of a later one; a
+ * successful login only matters while there are failures to clear. Only
+ * the hosts failing logins are remembered, each with its latest failure,
+ * and they are looked up straight from the bytes of a line.
+ *
+ * The kept requests are then replayed in log order through a fresh
+ * LoginFailureDetector, which ends in the same state as a sequential run
+ * and is handed to the server. This assumes the log is in time order,
+ * the same as the sequential path does. The requests it blocks go to the
+ * server's BlockedSink in log order, so a BlockedLog gets the same lines
+ * as in a sequential run, only at the end.
+ *
+ * Method Name - Description : Runtime
+ * process       - reads and merges the whole log into an empty    : O(n/p + c*(u + r) + b), where p is the parallelism,
+ *                 server, then rebuilds the blocked requests          c the number of chunks and b the kept requests
+ * replayLogins  - private helper that replays the kept requests   : O(b)
+ *                 through the login rules in log order and adds the
+ *                 blocked ones to a sink
+ * alignToLine   - private helper that moves a position forward to : O(k), where k is the length of a line
+ *                 the start of the next line
+ ******************************/
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+class ParallelLogProcessor {
+	private static final long MIN_CHUNK_SIZE = 1L << 20;
+	private static final long LOGIN_STATE_SECONDS = TimeUnit.MINUTES.toSeconds(5);
+	private String path;
+	private int parallelism;
+	private long malformedLines;
+
+	public ParallelLogProcessor(String path, int parallelism) {
+		this.path = path;
+		this.parallelism = parallelism;
+	}
+
+	public void process(Server server) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long chunkSize = Math.max(MIN_CHUNK_SIZE, size / (parallelism * 4L));
+			ForkJoinPool pool = new ForkJoinPool(parallelism);
+			Partial result;
+			try {
+				result = pool.invoke(new ChunkTask(new MappedLogReader(path), channel, 0, size, 
+						chunkSize, server));
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			} finally {
+				pool.shutdown();
+			}
+			malformedLines = result.malformedLines;
+			server.merge(result.server);
+			LoginFailureDetector logins = new LoginFailureDetector();
+			replayLogins(result, logins, server.getBlockedSink());
+			server.setLoginDetector(logins);
+		}
+	}
+
+	public long getMalformedLines() {
+		return malformedLines;
+	}
+
+	private void replayLogins(Partial partial, LoginFailureDetector logins, BlockedSink blocked) {
+		for (int i = 0; i < partial.keptRequests.size(); i++) {
+			Request request = partial.keptRequests.get(i);
+			if (logins.check(partial.keptHosts.get(i), request.getTime(), 
+					LoginFailureDetector.isLogin(request.getAddress()), request.getHTTPcode())) {
+				blocked.add(request);
+			}
+		}
+	}
+
+	private static long alignToLine(FileChannel channel, long position, long to) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		long cursor = position - 1;
+		while (cursor < to) {
+			buffer.clear();
+			int read = channel.read(buffer, cursor);
+			if (read <= 0) {
+				return to;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return Math.min(cursor + i + 1, to);
+				}
+			}
+			cursor += read;
+		}
+		return to;
+	}
+
+	/*
+	 * Aggregates of one or more consecutive chunks
+	 */
+	private static class Partial {
+		private Server server;
+		private List<String> keptHosts = new ArrayList<String>();
+		private List<Request> keptRequests = new ArrayList<Request>();
+		private long malformedLines;
+
+		Partial(Server template) {
+			this.server = template.emptyCopy();
+		}
+
+		private void merge(Partial next) {
+			server.merge(next.server);
+			keptHosts.addAll(next.keptHosts);
+			keptRequests.addAll(next.keptRequests);
+			malformedLines += next.malformedLines;
+		}
+	}
+
+	/*
+	 * Logs one chunk and keeps the requests that need a login replay
+	 */
+	private static class ChunkHandler extends RequestLineHandler {
+		private Partial partial;
+		private SymbolTable failingHosts;
+		// Time of the latest failed login of each failing host
+		private long[] lastFailures;
+		private long chunkStartTime;
+
+		ChunkHandler(Partial partial) {
+			super(partial.server);
+			this.partial = partial;
+			this.failingHosts = new SymbolTable();
+			this.lastFailures = new long[64];
+			this.chunkStartTime = Long.MIN_VALUE;
+		}
+
+		@Override
+		protected void logLine(ParsedLine line) {
+			super.logLine(line);
+			long time = line.getEpochSecond();
+			if (chunkStartTime == Long.MIN_VALUE) {
+				chunkStartTime = time;
+			}
+			ByteBuffer buffer = line.getBuffer();
+			int failing = -1;
+			if (line.getHTTPcodeValue() == LoginFailureDetector.FAILED_LOGIN 
+					&& line.isAddress(LoginFailureDetector.LOGIN)) {
+				failing = failingHosts.intern(buffer, line.getHostStart(), line.getHostEnd());
+				if (failing == lastFailures.length) {
+					lastFailures = Arrays.copyOf(lastFailures, failing * 2);
+				}
+				lastFailures[failing] = time;
+			} else if (failingHosts.size() > 0) {
+				failing = failingHosts.find(buffer, line.getHostStart(), line.getHostEnd());
+			}
+			boolean recentFailure = failing >= 0 && time - lastFailures[failing] < LOGIN_STATE_SECONDS;
+			if (time - chunkStartTime < LOGIN_STATE_SECONDS || recentFailure) {
+				partial.keptHosts.add(failing >= 0 ? failingHosts.getSymbol(failing) : line.getHost());
+				partial.keptRequests.add(line.toRequest());
+			}
+		}
+	}
+
+	private static class ChunkTask extends RecursiveTask<Partial> {
+		private static final long serialVersionUID = 1L;
+		private MappedLogReader reader;
+		private FileChannel channel;
+		private long from;
+		private long to;
+		private long chunkSize;
+		private Server template;
+
+		ChunkTask(MappedLogReader reader, FileChannel channel, long from, long to, long chunkSize,
+				Server template) {
+			this.reader = reader;
+			this.channel = channel;
+			this.from = from;
+			this.to = to;
+			this.chunkSize = chunkSize;
+			this.template = template;
+		}
+
+		@Override
+		protected Partial compute() {
+			try {
+				if (to - from > chunkSize) {
+					long middle = alignToLine(channel, from + (to - from) / 2, to);
+					if (middle > from && middle < to) {
+						ChunkTask left = new ChunkTask(reader, channel, from, middle, chunkSize, 
+								template);
+						ChunkTask right = new ChunkTask(reader, channel, middle, to, chunkSize, 
+								template);
+						left.fork();
+						Partial rightPartial = right.compute();
+						Partial leftPartial = left.join();
+						leftPartial.merge(rightPartial);
+						return leftPartial;
+					}
+				}
+				Partial partial = new Partial(template);
+				ChunkHandler handler = new ChunkHandler(partial);
+				reader.readRange(channel, from, to, handler);
+				partial.malformedLines = handler.getMalformedLines();
+				return partial;
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,221 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ParsedLine class: reusable, mutable record filled in by LogLineParser.
+ * Text fields are kept as [start, end) offsets into the buffer the line
+ * was read from, numeric fields are stored as primitives. A String is
+ * only created when one of the string getters or toRequest is called, so
+ * a line can be counted and checked against the login rules without
+ * allocating, see Server.logLine.
+ *
+ * Method Name - Description : Runtime
+ * getBuffer        - returns the buffer the offsets refer to          : O(1)
+ * get*Start/End    - returns the offsets of a field in the buffer     : O(1)
+ * getEpochSecond   - returns the timestamp in epoch seconds           : O(1)
+ * getZoneOffset    - returns the zone offset in seconds               : O(1)
+ * getHTTPcodeValue - returns the status code as an int                : O(1)
+ * getBytes         - returns the bytes field, 0 if it was "-"         : O(1)
+ * hasBytes         - returns false if the bytes field was "-"         : O(1)
+ * getHost          - returns the host as a String                     : O(k), where k is the length of the field
+ * getTime          - returns the timestamp without the zone offset    : O(k)
+ * getZone          - returns the zone offset, e.g. "-0400"            : O(k)
+ * getCMD           - returns the request method                       : O(k)
+ * getAddress       - returns the requested resource                   : O(k)
+ * isAddress        - returns true if the requested resource is the    : O(k)
+ *                    given one, without creating a String
+ * getOriginalInput - returns the whole line as a String               : O(k)
+ * toRequest        - returns a Request holding every field and the    : O(k)
+ *                    whole line
+ * decode           - returns [start, end) of a buffer as a String     : O(k)
+ ******************************/
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+class ParsedLine {
+	private ByteBuffer buffer;
+	private int lineStart;
+	private int lineEnd;
+	private int hostStart;
+	private int hostEnd;
+	private int timeStart;
+	private int timeEnd;
+	private int zoneStart;
+	private int zoneEnd;
+	private long epochSecond;
+	private int zoneOffset;
+	private int cmdStart;
+	private int cmdEnd;
+	private int addressStart;
+	private int addressEnd;
+	private int httpCode;
+	private int bytes;
+	private boolean hasBytes;
+
+	void setLine(ByteBuffer buffer, int lineStart, int lineEnd) {
+		this.buffer = buffer;
+		this.lineStart = lineStart;
+		this.lineEnd = lineEnd;
+	}
+
+	void setHost(int start, int end) {
+		hostStart = start;
+		hostEnd = end;
+	}
+
+	void setTime(int start, int end) {
+		timeStart = start;
+		timeEnd = end;
+	}
+
+	void setZone(int start, int end) {
+		zoneStart = start;
+		zoneEnd = end;
+	}
+
+	void setEpochSecond(long epochSecond, int zoneOffset) {
+		this.epochSecond = epochSecond;
+		this.zoneOffset = zoneOffset;
+	}
+
+	void setCMD(int start, int end) {
+		cmdStart = start;
+		cmdEnd = end;
+	}
+
+	void setAddress(int start, int end) {
+		addressStart = start;
+		addressEnd = end;
+	}
+
+	void setHTTPcode(int code) {
+		httpCode = code;
+	}
+
+	void setBytes(int bytes, boolean hasBytes) {
+		this.bytes = bytes;
+		this.hasBytes = hasBytes;
+	}
+
+	public ByteBuffer getBuffer() {
+		return buffer;
+	}
+
+	public int getLineStart() {
+		return lineStart;
+	}
+
+	public int getLineEnd() {
+		return lineEnd;
+	}
+
+	public int getHostStart() {
+		return hostStart;
+	}
+
+	public int getHostEnd() {
+		return hostEnd;
+	}
+
+	public int getTimeStart() {
+		return timeStart;
+	}
+
+	public int getTimeEnd() {
+		return timeEnd;
+	}
+
+	public int getZoneStart() {
+		return zoneStart;
+	}
+
+	public int getZoneEnd() {
+		return zoneEnd;
+	}
+
+	public long getEpochSecond() {
+		return epochSecond;
+	}
+
+	public int getZoneOffset() {
+		return zoneOffset;
+	}
+
+	public int getAddressStart() {
+		return addressStart;
+	}
+
+	public int getAddressEnd() {
+		return addressEnd;
+	}
+
+	public int getHTTPcodeValue() {
+		return httpCode;
+	}
+
+	public int getBytes() {
+		return bytes;
+	}
+
+	public boolean hasBytes() {
+		return hasBytes;
+	}
+
+	public String getHost() {
+		return slice(hostStart, hostEnd);
+	}
+
+	public String getTime() {
+		return slice(timeStart, timeEnd);
+	}
+
+	public String getZone() {
+		return slice(zoneStart, zoneEnd);
+	}
+
+	public String getCMD() {
+		return slice(cmdStart, cmdEnd);
+	}
+
+	public String getAddress() {
+		return slice(addressStart, addressEnd);
+	}
+
+	public boolean isAddress(String value) {
+		if (addressEnd - addressStart != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if ((buffer.get(addressStart + i) & 0xFF) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public String getOriginalInput() {
+		return slice(lineStart, lineEnd);
+	}
+
+	public Request toRequest() {
+		return new Request(epochSecond, zoneOffset, getCMD(), getAddress(), httpCode, bytes, getOriginalInput());
+	}
+
+	private String slice(int start, int end) {
+		return decode(buffer, start, end);
+	}
+
+	static String decode(ByteBuffer buffer, int start, int end) {
+		if (buffer.hasArray()) {
+			return new String(buffer.array(), buffer.arrayOffset() + start, end - start,
+					StandardCharsets.ISO_8859_1);
+		}
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.ISO_8859_1);
+	}
+}
@@ -0,0 +1,297 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * PipelinedLogProcessor class: runs reading, parsing and aggregation as
+ * separate stages so the CPU keeps working while the next bytes are read.
+ *
+ *   reader  - one thread filling batches with whole lines of the log
+ *   parsers - N threads parsing a batch of lines into its ParsedLines
+ *   server  - the calling thread, logging batches into the Server
+ *
+ * The stages share one ring of pre-allocated batches. A batch moves
+ * FREE -> READ -> PARSED -> FREE and carries the sequence number it was
+ * read with. Batch k always sits in slot k % ringSize, and the aggregator
+ * takes batches strictly in sequence order, so requests reach the Server
+ * in log order however the parsers are scheduled; the order sensitive
+ * blocked logins stay exact. The reader cannot overwrite a slot until the
+ * aggregator has freed it, which bounds memory and slows the reader down
+ * when parsing or aggregation falls behind. Threads only synchronize once
+ * per batch, never per line. A batch keeps its ParsedLines from one trip
+ * around the ring to the next; they point into the batch's own bytes,
+ * which stay put until the aggregator has logged them, so no Request or
+ * String is built per line on the way.
+ *
+ * Method Name - Description : Runtime
+ * process     - runs the pipeline over the whole log                : O(n/p), where p is the number of parsers
+ * read        - private reader stage                                 : O(n)
+ * lastNewline - private helper that finds the end of the last whole  : O(k), where k is the length of a line
+ *               line in a batch
+ ******************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+class PipelinedLogProcessor {
+	private static final int FREE = 0;
+	private static final int READ = 1;
+	private static final int PARSED = 2;
+	private static final int DEFAULT_RING_SIZE = 64;
+	private static final int DEFAULT_BATCH_SIZE = 1 << 20;
+	private String path;
+	private int parsers;
+	private Batch[] ring;
+	private AtomicLong nextToParse;
+	private ParserStage[] parserStages;
+	private long malformedLines;
+	private volatile Throwable failure;
+
+	public PipelinedLogProcessor(String path, int parsers) {
+		this(path, parsers, DEFAULT_RING_SIZE, DEFAULT_BATCH_SIZE);
+	}
+
+	public PipelinedLogProcessor(String path, int parsers, int ringSize, int batchSize) {
+		this.path = path;
+		this.parsers = parsers;
+		this.ring = new Batch[ringSize];
+		for (int i = 0; i < ringSize; i++) {
+			ring[i] = new Batch(i, batchSize);
+		}
+		this.nextToParse = new AtomicLong();
+		this.parserStages = new ParserStage[parsers];
+	}
+
+	public void process(Server server) throws IOException {
+		ExecutorService stages = Executors.newFixedThreadPool(parsers + 1);
+		try {
+			stages.execute(new Runnable() {
+				public void run() {
+					read();
+				}
+			});
+			for (int i = 0; i < parsers; i++) {
+				parserStages[i] = new ParserStage();
+				stages.execute(parserStages[i]);
+			}
+			for (long sequence = 0; ; sequence++) {
+				Batch batch = ring[(int) (sequence % ring.length)];
+				batch.await(sequence, PARSED);
+				for (int i = 0; i < batch.parsedCount; i++) {
+					server.logLine(batch.lines[i]);
+				}
+				boolean last = batch.last;
+				batch.release();
+				if (last) {
+					break;
+				}
+			}
+			// Every batch has been parsed, so the parser counts are final
+			for (ParserStage parser : parserStages) {
+				malformedLines += parser.getMalformedLines();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while processing " + path, e);
+		} catch (IllegalStateException e) {
+			if (failure instanceof IOException) {
+				throw (IOException) failure;
+			}
+			throw e;
+		} finally {
+			stages.shutdownNow();
+		}
+	}
+
+	public long getMalformedLines() {
+		return malformedLines;
+	}
+
+	private void read() {
+		try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+			byte[] carry = new byte[0];
+			int carryLength = 0;
+			boolean endOfFile = false;
+			for (long sequence = 0; !endOfFile; sequence++) {
+				Batch batch = ring[(int) (sequence % ring.length)];
+				batch.await(sequence - ring.length, FREE);
+				if (batch.data.length < carryLength * 2) {
+					batch.grow(carryLength * 2);
+				}
+				System.arraycopy(carry, 0, batch.data, 0, carryLength);
+				int filled = carryLength;
+				ByteBuffer target = ByteBuffer.wrap(batch.data);
+				while (filled < batch.data.length) {
+					target.limit(batch.data.length).position(filled);
+					long startTime = Metrics.now();
+					int read = channel.read(target);
+					Metrics.READ.recordSince(startTime);
+					if (read < 0) {
+						endOfFile = true;
+						break;
+					}
+					Metrics.BYTES_READ.add(read);
+					filled += read;
+				}
+				int end = endOfFile ? filled : lastNewline(batch.data, filled);
+				carryLength = filled - end;
+				if (carry.length < carryLength) {
+					carry = new byte[Math.max(carryLength, carry.length * 2)];
+				}
+				System.arraycopy(batch.data, end, carry, 0, carryLength);
+				batch.publish(sequence, end, endOfFile);
+			}
+		} catch (Throwable e) {
+			fail(e);
+		}
+	}
+
+	private int lastNewline(byte[] data, int filled) {
+		for (int i = filled - 1; i >= 0; i--) {
+			if (data[i] == '\n') {
+				return i + 1;
+			}
+		}
+		// No whole line in the batch, it is carried over and the next batch grows
+		return 0;
+	}
+
+	private void fail(Throwable e) {
+		failure = e;
+		for (Batch batch : ring) {
+			batch.wake();
+		}
+	}
+
+	/*
+	 * Parses batches in whatever order they are claimed
+	 */
+	private class ParserStage extends RequestLineHandler implements Runnable {
+		private Batch current;
+
+		ParserStage() {
+			super(null);
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					long sequence = nextToParse.getAndIncrement();
+					current = ring[(int) (sequence % ring.length)];
+					current.await(sequence, READ);
+					current.parsedCount = 0;
+					ByteBuffer buffer = ByteBuffer.wrap(current.data);
+					int lineStart = 0;
+					for (int i = 0; i < current.length; i++) {
+						if (current.data[i] == '\n') {
+							parseLine(buffer, lineStart, i);
+							lineStart = i + 1;
+						}
+					}
+					parseLine(buffer, lineStart, current.length);
+					current.markParsed();
+				}
+			} catch (InterruptedException e) {
+				// Pipeline finished
+			} catch (IllegalStateException e) {
+				// Another stage failed
+			} catch (Throwable e) {
+				fail(e);
+			}
+		}
+
+		private void parseLine(ByteBuffer buffer, int start, int end) {
+			if (end > start && current.data[end - 1] == '\r') {
+				end--;
+			}
+			if (end > start) {
+				handleLine(buffer, start, end);
+			}
+		}
+
+		@Override
+		protected ParsedLine nextLine() {
+			return current.nextLine();
+		}
+
+		@Override
+		protected void logLine(ParsedLine line) {
+			current.parsedCount++;
+		}
+	}
+
+	/*
+	 * One slot of the ring
+	 */
+	private class Batch {
+		private byte[] data;
+		private int length;
+		private boolean last;
+		// Lines parsed so far come first, the rest are kept for reuse
+		private ParsedLine[] lines;
+		private int parsedCount;
+		private long sequence;
+		private int state;
+
+		Batch(int index, int batchSize) {
+			this.data = new byte[batchSize];
+			this.lines = new ParsedLine[1024];
+			// As if batch index - ringSize had just been released
+			this.sequence = index - ring.length;
+			this.state = FREE;
+		}
+
+		void grow(int size) {
+			data = new byte[size];
+		}
+
+		ParsedLine nextLine() {
+			if (parsedCount == lines.length) {
+				ParsedLine[] larger = new ParsedLine[parsedCount * 2];
+				System.arraycopy(lines, 0, larger, 0, parsedCount);
+				lines = larger;
+			}
+			if (lines[parsedCount] == null) {
+				lines[parsedCount] = new ParsedLine();
+			}
+			return lines[parsedCount];
+		}
+
+		synchronized void await(long expectedSequence, int expectedState) throws InterruptedException {
+			while (sequence != expectedSequence || state != expectedState) {
+				if (failure != null) {
+					throw new IllegalStateException("Pipeline stage failed", failure);
+				}
+				wait();
+			}
+		}
+
+		synchronized void publish(long newSequence, int newLength, boolean isLast) {
+			sequence = newSequence;
+			length = newLength;
+			last = isLast;
+			state = READ;
+			notifyAll();
+		}
+
+		synchronized void markParsed() {
+			state = PARSED;
+			notifyAll();
+		}
+
+		synchronized void release() {
+			state = FREE;
+			notifyAll();
+		}
+
+		synchronized void wake() {
+			notifyAll();
+		}
+	}
+}
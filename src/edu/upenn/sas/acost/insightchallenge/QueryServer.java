@@ -0,0 +1,327 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * QueryServer class: the daemon mode. One thread follows the log with a
+ * LogFollower and logs every line into a Server, which also passes it to
+ * a RequestTimeline, and every publish interval it captures a Snapshot,
+ * which a publisher thread ranks and then swaps into an AtomicReference.
+ * A capture is skipped while the one before is still being ranked. An
+ * HttpServer on the loopback address answers queries from the latest
+ * snapshot on a few threads of its own. A query only reads the reference
+ * and the snapshot it points to, which nothing changes any more, so
+ * queries take no lock, never hold up the logging and always see one
+ * consistent moment of the log. A snapshot that is no longer the latest
+ * is freed once the queries reading it are done.
+ *
+ * The logging thread checks the clock every LINES_PER_CHECK lines, so a
+ * snapshot is also published while a large backlog is read, not only
+ * between polls. The capture itself runs on the logging thread and copies
+ * the count of every host and resource each time, see Snapshot, so the
+ * publish interval trades fresh answers against that copy.
+ *
+ * Queries are GET requests that answer plain text, one line per item,
+ * in the format of the output files:
+ *
+ *   /hosts?n=N          - host,requests, with ,error in a range or if
+ *                         the server is approximate
+ *   /resources?n=N      - resource,bytes, with ,error the same way
+ *   /windows?n=N&minutes=M - start,requests of the busiest windows of M
+ *                         minutes, default 60
+ *   /blocked?n=N        - host,start,end of the hosts blocked as of the
+ *                         latest request
+ *   /status             - lines, hosts, resources, first and latest
+ *                         time of the log, and the age of the snapshot
+ *
+ * n is any number, 10 by default. Every query but /status also takes
+ * from and to, epoch seconds, for a range [from, to); see Snapshot for
+ * what a range means for each query. A bad parameter answers 400.
+ *
+ * Method Name - Description : Runtime
+ * start       - starts answering queries                            : O(1)
+ * getPort     - returns the port queries are answered on, the one   : O(1)
+ *               picked if 0 was asked for
+ * ingest      - follows the log until the thread is interrupted     : O(b) per poll, where b is the number of new bytes
+ * publish     - captures a snapshot to be ranked and made the       : O(n + h), see Snapshot
+ *               latest, unless the last one is still being ranked
+ * getSnapshot - returns the latest snapshot                         : O(1)
+ * stop        - stops answering queries                             : O(1)
+ * daemonThreads - private helper that names the threads of a pool    : O(1)
+ * context     - private helper that answers one path with a query   : O(1)
+ * answer      - private helper that sends a reply                   : O(r), where r is the length of the reply
+ * intParameter - private helper that reads a number parameter        : O(1)
+ * longParameter - private helper that reads a number parameter       : O(1)
+ * parameters  - private helper that decodes the query string         : O(q), where q is the length of the query
+ ******************************/
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+class QueryServer {
+	private static final int DEFAULT_TOP = 10;
+	private static final int DEFAULT_WINDOW_MINUTES = 60;
+	private static final int HOURLY_COUNTERS = 256;
+	private static final int QUERY_THREADS = 4;
+	private static final int LINES_PER_CHECK = 4096;
+	private Server server;
+	private RequestTimeline timeline;
+	private AtomicReference<Snapshot> snapshot;
+	private AtomicBoolean publishing;
+	private HttpServer http;
+	private ExecutorService pool;
+	private ExecutorService publisher;
+	private long publishNanos;
+	private long nextPublish;
+	private long lines;
+	private long publishedLines;
+
+	public QueryServer(Server server, int port, long publishMillis) throws IOException {
+		this.server = server;
+		this.timeline = new RequestTimeline(HOURLY_COUNTERS);
+		server.setTimeline(timeline);
+		this.publishNanos = publishMillis * 1000000L;
+		this.nextPublish = System.nanoTime();
+		this.snapshot = new AtomicReference<Snapshot>(Snapshot.capture(server, timeline, 0));
+		this.publishing = new AtomicBoolean();
+		this.http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		this.pool = Executors.newFixedThreadPool(QUERY_THREADS, daemonThreads("query"));
+		this.publisher = Executors.newSingleThreadExecutor(daemonThreads("publisher"));
+		http.setExecutor(pool);
+		context("/hosts", new Query() {
+			public void answer(Snapshot snapshot, Map<String, String> parameters, StringBuilder reply) {
+				long from = longParameter(parameters, "from", Snapshot.NO_START);
+				long to = longParameter(parameters, "to", Snapshot.NO_END);
+				boolean approximate = snapshot.isApproximate(from, to);
+				for (HeavyHitter host : snapshot.topHosts(intParameter(parameters, "n", DEFAULT_TOP), from, to)) {
+					reply.append(host.getKey()).append(',').append(host.getCount());
+					if (approximate) {
+						reply.append(',').append(host.getError());
+					}
+					reply.append('\n');
+				}
+			}
+		});
+		context("/resources", new Query() {
+			public void answer(Snapshot snapshot, Map<String, String> parameters, StringBuilder reply) {
+				long from = longParameter(parameters, "from", Snapshot.NO_START);
+				long to = longParameter(parameters, "to", Snapshot.NO_END);
+				boolean approximate = snapshot.isApproximate(from, to);
+				for (HeavyHitter resource : snapshot.topResources(intParameter(parameters, "n", DEFAULT_TOP), 
+						from, to)) {
+					reply.append(resource.getKey()).append(',').append(resource.getCount());
+					if (approximate) {
+						reply.append(',').append(resource.getError());
+					}
+					reply.append('\n');
+				}
+			}
+		});
+		context("/windows", new Query() {
+			public void answer(Snapshot snapshot, Map<String, String> parameters, StringBuilder reply) {
+				int minutes = intParameter(parameters, "minutes", DEFAULT_WINDOW_MINUTES);
+				if (minutes <= 0 || minutes > Integer.MAX_VALUE / 60) {
+					throw new IllegalArgumentException("minutes must be between 1 and " + Integer.MAX_VALUE / 60);
+				}
+				for (BusyWindow window : snapshot.busiestWindows(intParameter(parameters, "n", DEFAULT_TOP), 
+						60 * minutes, longParameter(parameters, "from", Snapshot.NO_START), 
+						longParameter(parameters, "to", Snapshot.NO_END))) {
+					reply.append(TimestampDecoder.format(window.getStart(), window.getZoneOffset())).append(',')
+							.append(window.getRequests()).append('\n');
+				}
+			}
+		});
+		context("/blocked", new Query() {
+			public void answer(Snapshot snapshot, Map<String, String> parameters, StringBuilder reply) {
+				for (BlockedHost host : snapshot.blockedHosts(intParameter(parameters, "n", DEFAULT_TOP), 
+						longParameter(parameters, "from", Snapshot.NO_START), 
+						longParameter(parameters, "to", Snapshot.NO_END))) {
+					reply.append(host.getHost()).append(',').append(host.getStart()).append(',')
+							.append(host.getEnd()).append('\n');
+				}
+			}
+		});
+		context("/status", new Query() {
+			public void answer(Snapshot snapshot, Map<String, String> parameters, StringBuilder reply) {
+				reply.append("lines,").append(snapshot.getLines()).append('\n');
+				reply.append("hosts,").append(snapshot.getHostCount()).append('\n');
+				reply.append("resources,").append(snapshot.getResourceCount()).append('\n');
+				if (snapshot.getLines() > 0) {
+					reply.append("first,").append(snapshot.getFirstSecond()).append('\n');
+					reply.append("latest,").append(snapshot.getLastSecond()).append('\n');
+				}
+				reply.append("age_millis,").append(System.currentTimeMillis() - snapshot.getCapturedMillis())
+						.append('\n');
+			}
+		});
+	}
+
+	public void start() {
+		http.start();
+	}
+
+	public int getPort() {
+		return http.getAddress().getPort();
+	}
+
+	public void ingest(String path, long pollMillis) throws IOException, InterruptedException {
+		RequestLineHandler handler = new RequestLineHandler(server) {
+			@Override
+			protected void logLine(ParsedLine line) {
+				super.logLine(line);
+				if (++lines % LINES_PER_CHECK == 0 && System.nanoTime() - nextPublish >= 0) {
+					publish();
+				}
+			}
+		};
+		LogFollower follower = new LogFollower(path, handler);
+		try {
+			while (!Thread.currentThread().isInterrupted()) {
+				follower.poll();
+				if (lines != publishedLines && System.nanoTime() - nextPublish >= 0) {
+					publish();
+				}
+				Thread.sleep(pollMillis);
+			}
+		} finally {
+			follower.close();
+		}
+	}
+
+	public void publish() {
+		if (!publishing.compareAndSet(false, true)) {
+			return;
+		}
+		final Snapshot next = Snapshot.capture(server, timeline, lines);
+		publisher.execute(new Runnable() {
+			public void run() {
+				try {
+					next.rank();
+					snapshot.set(next);
+				} finally {
+					publishing.set(false);
+				}
+			}
+		});
+		publishedLines = lines;
+		nextPublish = System.nanoTime() + publishNanos;
+		try {
+			server.getBlockedSink().flush();
+		} catch (IOException e) {
+			System.err.println("Could not flush the blocked requests: " + e.getMessage());
+		}
+	}
+
+	public Snapshot getSnapshot() {
+		return snapshot.get();
+	}
+
+	public void stop() {
+		http.stop(0);
+		pool.shutdown();
+		publisher.shutdown();
+	}
+
+	private static ThreadFactory daemonThreads(final String name) {
+		return new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+
+	private void context(String path, final Query query) {
+		http.createContext(path, new HttpHandler() {
+			public void handle(HttpExchange exchange) throws IOException {
+				try {
+					if (!exchange.getRequestMethod().equals("GET")) {
+						answer(exchange, 405, "Only GET is supported\n");
+						return;
+					}
+					StringBuilder reply = new StringBuilder();
+					try {
+						query.answer(snapshot.get(), parameters(exchange.getRequestURI().getRawQuery()), reply);
+					} catch (IllegalArgumentException e) {
+						answer(exchange, 400, e.getMessage() + "\n");
+						return;
+					}
+					answer(exchange, 200, reply.toString());
+				} finally {
+					exchange.close();
+				}
+			}
+		});
+	}
+
+	private static void answer(HttpExchange exchange, int status, String reply) throws IOException {
+		byte[] bytes = reply.getBytes(StandardCharsets.ISO_8859_1);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=ISO-8859-1");
+		exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+		if (bytes.length > 0) {
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		}
+	}
+
+	private static int intParameter(Map<String, String> parameters, String name, int defaultValue) {
+		long value = longParameter(parameters, name, defaultValue);
+		if (value < 0 || value > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException(name + " must be between 0 and " + Integer.MAX_VALUE);
+		}
+		return (int) value;
+	}
+
+	private static long longParameter(Map<String, String> parameters, String name, long defaultValue) {
+		String value = parameters.get(name);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException(name + " is not a number: " + value);
+		}
+	}
+
+	private static Map<String, String> parameters(String query) {
+		Map<String, String> parameters = new HashMap<String, String>();
+		if (query == null) {
+			return parameters;
+		}
+		for (String pair : query.split("&")) {
+			int equals = pair.indexOf('=');
+			if (equals > 0) {
+				try {
+					parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"), 
+							URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+				} catch (UnsupportedEncodingException e) {
+					throw new AssertionError(e);
+				}
+			}
+		}
+		return parameters;
+	}
+
+	interface Query {
+		void answer(Snapshot snapshot, Map<String, String> parameters, StringBuilder reply);
+	}
+}
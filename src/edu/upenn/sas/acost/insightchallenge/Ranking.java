@@ -0,0 +1,82 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * Ranking class: an unchanging copy of the counts of every host or every
+ * resource of a Server at one moment, which can be ranked for any k
+ * while the server keeps counting. Only the names and counts are copied,
+ * two array copies, so taking one costs the server O(n) and no sorting.
+ *
+ * Ranking is left to whoever asks: top picks the best ids with a
+ * TopKSelector over the copy, at least RANKED of them, and remembers them,
+ * so later calls for up to that many only read the front of the list.
+ * Calls from several threads may each rank once, which gives the same ids;
+ * the last one remembered wins.
+ *
+ * A ranking made from the counters of an approximate server only holds
+ * the keys that have a counter, with their errors.
+ *
+ * Method Name   - Description : Runtime
+ * fromHitters   - makes a ranking of heavy hitters with their errors : O(m)
+ * rank          - ranks the best RANKED ahead of the first top      : O(n*logk)
+ * top           - returns the k largest counts, ties by name        : O(k), O(n*logk) the first time or for a larger k
+ * size          - returns the number of hosts or resources          : O(1)
+ * isApproximate - returns true if the counts have error bounds      : O(1)
+ ******************************/
+
+import java.util.ArrayList;
+import java.util.List;
+
+class Ranking {
+	private static final int RANKED = 1000;
+	private String[] names;
+	private long[] counts;
+	private long[] errors;
+	private volatile int[] ranked;
+
+	public Ranking(String[] names, long[] counts, long[] errors) {
+		this.names = names;
+		this.counts = counts;
+		this.errors = errors;
+	}
+
+	public static Ranking fromHitters(List<HeavyHitter> hitters) {
+		String[] names = new String[hitters.size()];
+		long[] counts = new long[names.length];
+		long[] errors = new long[names.length];
+		for (int i = 0; i < names.length; i++) {
+			HeavyHitter hitter = hitters.get(i);
+			names[i] = hitter.getKey();
+			counts[i] = hitter.getCount();
+			errors[i] = hitter.getError();
+		}
+		return new Ranking(names, counts, errors);
+	}
+
+	public void rank() {
+		top(0);
+	}
+
+	public List<HeavyHitter> top(int k) {
+		int[] best = ranked;
+		if (best == null || (best.length < k && best.length < names.length)) {
+			best = new TopKSelector(counts, names, Math.max(k, RANKED)).select();
+			ranked = best;
+		}
+		List<HeavyHitter> hitters = new ArrayList<HeavyHitter>(Math.min(k, best.length));
+		for (int i = 0; i < Math.min(k, best.length); i++) {
+			int id = best[i];
+			hitters.add(new HeavyHitter(names[id], counts[id], errors == null ? 0 : errors[id]));
+		}
+		return hitters;
+	}
+
+	public int size() {
+		return names.length;
+	}
+
+	public boolean isApproximate() {
+		return errors != null;
+	}
+}
@@ -0,0 +1,64 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * RequestLineHandler class: LineHandler that parses each line with a
+ * LogLineParser into a reused ParsedLine and logs it to a Server, which
+ * reads the fields straight from the line's bytes. No Request is built
+ * for a line, so a line allocates nothing unless it is blocked or has a
+ * host or resource not seen before. Malformed lines are skipped and
+ * counted.
+ *
+ * Method Name - Description : Runtime
+ * handleLine      - parses the line and logs it to the server    : O(k), where k is the length of the line
+ * nextLine        - returns the ParsedLine to parse the next     : O(1)
+ *                   line into, subclasses can hand out their own
+ * logLine         - logs a parsed line, subclasses can extend    : O(k)
+ *                   this to look at every line. the line is only
+ *                   valid for the duration of the call, unless
+ *                   the subclass handed it out
+ * getMalformedLines - returns the number of lines that could not : O(1)
+ *                     be parsed
+ ******************************/
+
+import java.nio.ByteBuffer;
+
+class RequestLineHandler implements LineHandler {
+	private Server server;
+	private LogLineParser parser;
+	private ParsedLine parsed;
+	private long malformedLines;
+
+	public RequestLineHandler(Server server) {
+		this.server = server;
+		this.parser = new LogLineParser();
+		this.parsed = new ParsedLine();
+		this.malformedLines = 0;
+	}
+
+	public void handleLine(ByteBuffer buffer, int start, int end) {
+		long startTime = Metrics.now();
+		ParsedLine line = nextLine();
+		if (!parser.parse(buffer, start, end, line)) {
+			Metrics.MALFORMED.increment();
+			malformedLines++;
+			return;
+		}
+		Metrics.PARSE.recordSince(startTime);
+		Metrics.LINES.increment();
+		logLine(line);
+	}
+
+	protected ParsedLine nextLine() {
+		return parsed;
+	}
+
+	protected void logLine(ParsedLine line) {
+		server.logLine(line);
+	}
+
+	public long getMalformedLines() {
+		return malformedLines;
+	}
+}
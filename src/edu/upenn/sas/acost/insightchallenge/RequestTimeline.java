@@ -0,0 +1,225 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * RequestTimeline class: keeps enough of the history of the log to answer
+ * questions about any stretch of time after the fact, for QueryServer:
+ *
+ *   - the requests of every second, from the first second of the log on,
+ *     in an int array, so the busiest windows of any length and any range
+ *     are one sliding sum over the seconds asked about. This costs 4
+ *     bytes per second the log spans, about 10 MiB per month.
+ *   - a SpaceSavingSketch of the hosts and one of the bytes per resource
+ *     of every epoch hour with requests, so the top hosts and resources of
+ *     a range are the merged sketches of its hours, with error bounds.
+ *     This costs a fixed amount per hour, whatever the number of hosts.
+ *
+ * Lines are expected in time order, as the log is written. A line older
+ * than the latest second is counted at the latest second and in the
+ * latest hour, so nothing before them ever changes again. That is what
+ * lets freeze share the seconds instead of copying them: a frozen
+ * timeline keeps the array and the number of seconds at that moment, and
+ * a copy of the count of the latest second, the only one that can still
+ * grow. The timeline only writes past it, or into a new array once it
+ * has to grow. The hours are shared the same way, all but the latest,
+ * whose sketches are copied. A frozen timeline is never counted into and
+ * can be read from any thread once it has been safely published.
+ *
+ * Method Name    - Description : Runtime
+ * count          - counts the host and resource of one request      : O(logm), where m is the counters per hour
+ * freeze         - returns an unchanging copy of the timeline       : O(h + m*logm), where h is the number of hours
+ * busiestWindows - returns the k busiest windows of a length that   : O(s*logk), where s is the seconds in the range
+ *                  start in a range, ties by start time
+ * topHosts       - returns the k hosts with the most requests in    : O(h*m*logm)
+ *                  the hours a range touches, with error bounds
+ * topResources   - returns the k resources with the most bytes in   : O(h*m*logm)
+ *                  the hours a range touches, with error bounds
+ * getFirstSecond - returns the first second counted                 : O(1)
+ * getLastSecond  - returns the latest second counted                : O(1)
+ * countAt        - private helper that returns the requests of the  : O(1)
+ *                  second at an index
+ * merged         - private helper that merges the sketches of the   : O(h*m*logm)
+ *                  hours a range touches
+ * addHour        - private helper that starts the sketches of a new : O(1) amortized
+ *                  hour
+ ******************************/
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+class RequestTimeline {
+	private static final int HOUR = 3600;
+	private static final int DEFAULT_SECONDS = 1 << 16;
+	private static final int DEFAULT_HOURS = 64;
+	private int counters;
+	// Requests of each second from firstSecond on, the latest at length - 1
+	private int[] seconds;
+	private int length;
+	private long firstSecond;
+	private int zoneOffset;
+	// Set once frozen, the count of the latest second when frozen
+	private boolean frozen;
+	private int latestCount;
+	// Epoch hour and sketches of each hour with requests, in order
+	private long[] hours;
+	private SpaceSavingSketch[] hostSketches;
+	private SpaceSavingSketch[] resourceSketches;
+	private int hourCount;
+
+	public RequestTimeline(int counters) {
+		this.counters = counters;
+		this.seconds = new int[DEFAULT_SECONDS];
+		this.hours = new long[DEFAULT_HOURS];
+		this.hostSketches = new SpaceSavingSketch[DEFAULT_HOURS];
+		this.resourceSketches = new SpaceSavingSketch[DEFAULT_HOURS];
+	}
+
+	public void count(long second, int zoneOffset, String host, String resource, int bytes) {
+		if (frozen) {
+			throw new IllegalStateException("A frozen timeline cannot count");
+		}
+		if (length == 0) {
+			firstSecond = second;
+		}
+		long index = Math.max(second - firstSecond, length - 1);
+		if (index >= length) {
+			if (index >= seconds.length) {
+				if (index >= Integer.MAX_VALUE - 8) {
+					throw new IllegalStateException("The log spans more seconds than a timeline can hold");
+				}
+				seconds = Arrays.copyOf(seconds, (int) Math.min(Integer.MAX_VALUE - 8, 
+						Math.max(index + 1, seconds.length * 2L)));
+			}
+			length = (int) index + 1;
+			this.zoneOffset = zoneOffset;
+		}
+		seconds[(int) index]++;
+		long hour = Math.floorDiv(firstSecond + index, HOUR);
+		if (hourCount == 0 || hour > hours[hourCount - 1]) {
+			addHour(hour);
+		}
+		hostSketches[hourCount - 1].offer(host, 1);
+		resourceSketches[hourCount - 1].offer(resource, bytes);
+	}
+
+	public RequestTimeline freeze() {
+		RequestTimeline copy = new RequestTimeline(counters, seconds, Arrays.copyOf(hours, hourCount), 
+				Arrays.copyOf(hostSketches, hourCount), Arrays.copyOf(resourceSketches, hourCount));
+		copy.length = length;
+		copy.firstSecond = firstSecond;
+		copy.zoneOffset = zoneOffset;
+		copy.latestCount = length == 0 ? 0 : seconds[length - 1];
+		if (hourCount > 0) {
+			// The only hour still counted into
+			copy.hostSketches[hourCount - 1] = new SpaceSavingSketch(counters);
+			copy.hostSketches[hourCount - 1].merge(hostSketches[hourCount - 1]);
+			copy.resourceSketches[hourCount - 1] = new SpaceSavingSketch(counters);
+			copy.resourceSketches[hourCount - 1].merge(resourceSketches[hourCount - 1]);
+		}
+		return copy;
+	}
+
+	private RequestTimeline(int counters, int[] seconds, long[] hours, SpaceSavingSketch[] hostSketches, 
+			SpaceSavingSketch[] resourceSketches) {
+		this.counters = counters;
+		this.seconds = seconds;
+		this.hours = hours;
+		this.hostSketches = hostSketches;
+		this.resourceSketches = resourceSketches;
+		this.hourCount = hours.length;
+		this.frozen = true;
+	}
+
+	public List<BusyWindow> busiestWindows(int k, int windowSeconds, long from, long to) {
+		if (k <= 0 || length == 0) {
+			return Collections.emptyList();
+		}
+		long start = Math.max(0, Math.max(from, firstSecond) - firstSecond);
+		long end = Math.min(length, Math.min(to, firstSecond + length) - firstSecond);
+		// The worst window kept is at the head
+		PriorityQueue<BusyWindow> best = new PriorityQueue<BusyWindow>(Math.min(k, 1024), new Comparator<BusyWindow>() {
+			public int compare(BusyWindow one, BusyWindow two) {
+				if (one.getRequests() != two.getRequests()) {
+					return one.getRequests() < two.getRequests() ? -1 : 1;
+				}
+				return Long.compare(two.getStart(), one.getStart());
+			}
+		});
+		long sum = 0;
+		for (long i = start; i < Math.min(length, start + windowSeconds); i++) {
+			sum += countAt((int) i);
+		}
+		// Requests a window needs to be kept; a later window with as many ranks below every one kept
+		long floor = 0;
+		for (int i = (int) start; i < end; i++) {
+			if (sum > floor) {
+				if (best.size() == k) {
+					best.poll();
+				}
+				best.add(new BusyWindow(firstSecond + i, sum, zoneOffset));
+				if (best.size() == k) {
+					floor = best.peek().getRequests();
+				}
+			}
+			sum -= countAt(i);
+			long next = (long) i + windowSeconds;
+			if (next < length) {
+				sum += countAt((int) next);
+			}
+		}
+		List<BusyWindow> windows = new ArrayList<BusyWindow>(best.size());
+		while (!best.isEmpty()) {
+			windows.add(best.poll());
+		}
+		Collections.reverse(windows);
+		return windows;
+	}
+
+	public List<HeavyHitter> topHosts(int k, long from, long to) {
+		return merged(hostSketches, from, to).top(k);
+	}
+
+	public List<HeavyHitter> topResources(int k, long from, long to) {
+		return merged(resourceSketches, from, to).top(k);
+	}
+
+	public long getFirstSecond() {
+		return firstSecond;
+	}
+
+	public long getLastSecond() {
+		return firstSecond + length - 1;
+	}
+
+	private int countAt(int index) {
+		return frozen && index == length - 1 ? latestCount : seconds[index];
+	}
+
+	private SpaceSavingSketch merged(SpaceSavingSketch[] sketches, long from, long to) {
+		SpaceSavingSketch merged = new SpaceSavingSketch(counters);
+		for (int i = 0; i < hourCount; i++) {
+			long hourStart = hours[i] * HOUR;
+			if (hourStart < to && hourStart + HOUR > from) {
+				merged.merge(sketches[i]);
+			}
+		}
+		return merged;
+	}
+
+	private void addHour(long hour) {
+		if (hourCount == hours.length) {
+			hours = Arrays.copyOf(hours, hourCount * 2);
+			hostSketches = Arrays.copyOf(hostSketches, hourCount * 2);
+			resourceSketches = Arrays.copyOf(resourceSketches, hourCount * 2);
+		}
+		hours[hourCount] = hour;
+		hostSketches[hourCount] = new SpaceSavingSketch(counters);
+		resourceSketches[hourCount] = new SpaceSavingSketch(counters);
+		hourCount++;
+	}
+}
@@ -4,267 +4,610 @@ package edu.upenn.sas.acost.insightchallenge;
  * @author adamcostarino
  * 
  * Server Object keeps track of:
- * All requests made to the server
- * All Users who have made requests to the server
+ * The number of requests made by every host
  * Most frequent users
  * Resources using the most bandwidth
  * Most popular hours of access
  * Logs blocked attempts to login
  * 
+ * A server keeps no Request per line, only the per host counts, the
+ * resource totals, the counts of the active windows and the hosts failing
+ * logins, so its memory follows the number of distinct hosts and resources
+ * rather than the number of lines or the length of the log, as long as its
+ * blocked requests go to a BlockedLog.
+ * 
+ * Hosts and resources are interned into dense ids by a SymbolTable and
+ * counted in long arrays indexed by id, so a request costs two table
+ * lookups and two array increments, with no boxing and no map entries.
+ * logLine interns them straight from the bytes of a ParsedLine and hands
+ * the interned Strings on, and the id of LOGIN is remembered when it is
+ * first interned, so a line is counted and checked without allocating;
+ * only a blocked line is turned into a Request. Approximate counting
+ * still decodes the host and resource of each line for the sketches.
+ * The failed login rules are applied by a LoginFailureDetector, which
+ * only keeps the hosts currently failing logins or blocked. Each request
+ * it blocks goes to a BlockedSink as soon as it is blocked; the server's
+ * own sink keeps them in a list, setBlockedSink replaces it.
+ * 
+ * A server created with sketchCounters is approximate: requests per host
+ * and bytes per resource go to two SpaceSavingSketches of that many
+ * counters instead and are not interned at all, so
+ * the memory for the top hosts and resources is fixed however many
+ * distinct hosts and resources the log has. Every count then comes with
+ * its error bound, see getHeavyHosts and getHeavyResources.
+ * 
+ * The busiest windows can be tracked for several window lengths at once,
+ * one hour unless windowLengths is given. Requests are counted per
+ * second first, and each second with requests is passed once to the
+ * BusyWindowTracker of every length, so all of them come out of the same
+ * single pass over the log.
+ * 
+ * A server created with uniquePrecision also estimates the distinct hosts
+ * and distinct resources of every hour and day with a UniqueCountTracker
+ * of HyperLogLogs of that precision. A RequestTimeline given to
+ * setTimeline gets every request too, see QueryServer.
+ * 
+ * A server can be saved with writeTo and restored
+ * into a new server with the same settings with readFrom, see Checkpoint.
+ * 
  * Method Name - Description - Runtime
  * logRequest          - logs request made to the server and updates         : O(1)
  *                       relevant data structures
- * updateLinearTimeMap - private method that creates a HashMap that          : O(m), where m is the number of seconds between first and last request
- *                       holds all times between first and last requests
- *                       and maps to requests, if any, that happened
- *                       during that specific period
- * moreThanHour        - private method that evaluates the distance between  : O(1)
- *                       two time strings, it returns true if over and hour 
- *                       and false otherwise
- * iterateThroughLinearTimeMap - private method that iterates through the    : O(m), where m is the number of seconds between first and last request
- *                               linear time map keeping track of the busiest
- *                               times
- * getTopTenUserNames  - uses optimal algorithm (merge sort) to sort the     : O(n*logn) where n is the total number of users
- *                       users hashmap by values then returns the top ten.
+ * logLine             - logs a parsed line the same way, without building   : O(k), where k is the length of the line
+ *                       its Request unless it is blocked
+ * countRequest        - private helper that applies a request to everything : O(1)
+ *                       but the host and resource totals, and returns true
+ *                       if it is blocked
+ * merge               - merges the aggregates of a server that logged the   : O(u + r + w), the users and resources of the other server and the window length
+ *                       requests directly following this server's requests.
+ *                       blocked requests are not merged, see
+ *                       ParallelLogProcessor
+ * getTopTenUserNames  - returns the ten hosts with the most requests        : O(n*logk) where n is the total number of hosts
+ * getTopUserNames     - returns the k hosts with the most requests, picked
+ *                       by a TopKSelector. ties are determined
+ *                       lexicographically
+ * getRequestCount     - returns the number of requests made by a host, the  : O(1)
+ *                       count of its counter if approximate
+ * getHeavyHosts       - returns the k hosts with the most requests with     : O(n*logk), O(m*logm) if approximate, where m is sketchCounters
+ *                       their counts and error bounds, 0 unless approximate
+ * getTopTenRequests   - returns the ten resources using the most bytes      : O(n*logk) where n is the total number of resources
+ * getTopRequests      - returns the k resources using the most bytes.
  *                       ties are determined lexicographically
- * 
- * getTopTenRequests   - rses optimal algorithm (merge sort) to sort the     : O(n*logn) where n is the total number of users
- *                       bandwidthTracker hashmap by values then returns 
- *                       the top ten. ties are determined lexicographically
- * ripQueueReturn      - runs through the busyQueue to find any other times  : O(n*logn) where m is the total number of busy times logged
- *                       that were not logged initially. uses merge sort to
- *                       sort the busiestTimes map by values
+ * getHeavyResources   - returns the k resources using the most bytes with   : O(n*logk), O(m*logm) if approximate
+ *                       their bytes and error bounds
+ * isApproximate       - returns true if hosts and resources are counted by  : O(1)
+ *                       sketches
+ * rankHosts           - returns a Ranking of every host, a copy that can be : O(n), O(m*logm) if approximate
+ *                       ranked later while this server keeps counting. the
+ *                       hosts with a counter if approximate
+ * rankResources       - returns a Ranking of every resource                 : O(n), O(m*logm) if approximate
+ * getHostCount        - returns the number of hosts with an id, none if     : O(1)
+ *                       approximate
+ * getResourceCount    - returns the number of resources with an id, none    : O(1)
+ *                       if approximate
+ * internHost          - private helper that returns the id of a host,       : O(1) expected
+ *                       growing the arrays indexed by host id
+ * internResource      - private helper that returns the id of a resource,   : O(1) expected
+ *                       growing the array indexed by resource id
+ * addedResource       - private helper that grows the array indexed by      : O(1) amortized
+ *                       resource id and remembers the id of LOGIN
+ * symbolsOf           - private helper that maps ids back to their names    : O(k)
+ * keysOf              - private helper that returns the keys of heavy       : O(k)
+ *                       hitters
+ * heavyHittersOf      - private helper that pairs the top ids with their    : O(k)
+ *                       exact counts
+ * countSecond         - counts requests at an epoch second for the busiest  : O(1)
+ *                       windows, used for the lines of a sharded run
+ * flushSecond         - private method that passes the requests of the      : O(l), where l is the number of window lengths
+ *                       latest second to every BusyWindowTracker
+ * ripQueueReturn      - returns the busiest 60 minute windows               : O(w + k*logk), where w is the length of a window in seconds
+ * getBusiestWindows   - returns the busiest windows of one of the window    : O(w + k*logk)
+ *                       lengths, found by its BusyWindowTracker. ten unless
+ *                       topWindows is given, ties by start time. with
+ *                       nonOverlapping only peaks that no overlapping window
+ *                       beats are returned
+ * getUniqueHours      - returns the distinct hosts and resources of every   : O(h*2^p), where h is the number of hours and p the precision
+ *                       hour, empty without uniquePrecision
+ * getUniqueDays       - returns the distinct hosts and resources of every   : O(h*2^p)
+ *                       day, empty without uniquePrecision
+ * countsUniques       - returns true if distinct hosts and resources are    : O(1)
+ *                       counted
+ * getWindowLengths    - returns the window lengths in seconds               : O(l)
+ * emptyCopy           - returns an empty server with the same settings,     : O(1)
+ *                       used for the partial servers of a parallel run
+ * emptyShard          - returns an empty server with the same settings but  : O(1)
+ *                       no busiest windows, used for the shards of a
+ *                       sharded run, which count their seconds themselves
+ * writeTo             - writes the settings and every aggregate, for a      : O(u + r + w)
+ *                       Checkpoint. blocked requests are not part of it,
+ *                       the Checkpoint covers blocked.txt instead
+ * readFrom            - restores what writeTo wrote into a new server and   : O(u + r + w)
+ *                       returns true, or returns false without changing
+ *                       anything if it was written with other settings
  * getBlockedRequest   - returns the blockedRequest List which is formed     : O(1)
  *                       during each log request. the process of forming the
  *                       list will take n time, where n is the number of
  *                       requests. however the method only takes constant to
- *                       return.
+ *                       return. empty once the sink is replaced
+ * getBlockedSink      - returns the sink blocked requests go to, also used  : O(1)
+ *                       to add the blocked requests rebuilt after a
+ *                       parallel merge
+ * setBlockedSink      - replaces the sink blocked requests go to            : O(1)
+ * getLoginDetector    - returns the failed login state                      : O(1)
+ * setLoginDetector    - replaces the failed login state, used when it is    : O(1)
+ *                       rebuilt after a parallel merge
+ * setTimeline         - passes every request logged from now on to a       : O(1)
+ *                       RequestTimeline as well
  ********************/
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
-import java.util.Deque;
-import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.Map.*;
-import java.util.ArrayDeque;
-import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 
 class Server {
-	private Map<User, Integer> users;
-	private Map<String, Integer> bandwidthTracker;
-	private Map<String, User> ipToUser;
-	private Deque<String> busyQueue;
-	private SortedMap<String, Request> linearTimeMap;
-	private Map<String, Integer> busiestTimes;
+	private static final int DEFAULT_CAPACITY = 1024;
+	private static final int WINDOW_SECONDS = 3600;
+	private static final int TOP_WINDOWS = 10;
+	private SymbolTable hosts;
+	private SymbolTable resources;
+	private long[] hostRequests;
+	private long[] resourceBytes;
+	// Id of LoginFailureDetector.LOGIN once it is interned
+	private int loginResource;
+	private int[] windowLengths;
+	private BusyWindowTracker[] busyWindows;
+	// Requests of the latest second, not yet passed to the trackers
+	private long pendingSecond;
+	private int pendingZone;
+	private int pendingRequests;
+	private LoginFailureDetector logins;
 	private List<Request> blockedRequests;
-	private String date;
+	private BlockedSink blockedSink;
+	private int topWindows;
+	private boolean nonOverlapping;
+	private int sketchCounters;
+	private SpaceSavingSketch hostSketch;
+	private SpaceSavingSketch resourceSketch;
+	private int uniquePrecision;
+	private UniqueCountTracker uniques;
+	private RequestTimeline timeline;
 	
 	public Server() {
-		 this.users = new HashMap<User, Integer>(); 
-		 this.bandwidthTracker = new HashMap<String, Integer>();
-		 this.ipToUser = new HashMap<String, User>();
-		 this.busyQueue = new ArrayDeque<String>();
-		 this.linearTimeMap = new TreeMap<String, Request>();
-		 this.busiestTimes = new HashMap<String, Integer>();
+		this(TOP_WINDOWS, false);
+	}
+	
+	public Server(int topWindows, boolean nonOverlapping) {
+		this(topWindows, nonOverlapping, new int[] {WINDOW_SECONDS});
+	}
+	
+	public Server(int topWindows, boolean nonOverlapping, int[] windowLengths) {
+		this(topWindows, nonOverlapping, windowLengths, 0);
+	}
+	
+	public Server(int topWindows, boolean nonOverlapping, int[] windowLengths, int sketchCounters) {
+		this(topWindows, nonOverlapping, windowLengths, sketchCounters, 0);
+	}
+	
+	public Server(int topWindows, boolean nonOverlapping, int[] windowLengths, int sketchCounters, 
+			int uniquePrecision) {
+		 this.topWindows = topWindows;
+		 this.nonOverlapping = nonOverlapping;
+		 this.hosts = new SymbolTable();
+		 this.resources = new SymbolTable();
+		 this.hostRequests = new long[DEFAULT_CAPACITY];
+		 this.resourceBytes = new long[DEFAULT_CAPACITY];
+		 this.loginResource = -1;
+		 this.windowLengths = windowLengths.clone();
+		 this.busyWindows = new BusyWindowTracker[windowLengths.length];
+		 for (int i = 0; i < windowLengths.length; i++) {
+			 busyWindows[i] = new BusyWindowTracker(windowLengths[i], topWindows, nonOverlapping);
+		 }
+		 this.sketchCounters = sketchCounters;
+		 if (sketchCounters > 0) {
+			 this.hostSketch = new SpaceSavingSketch(sketchCounters);
+			 this.resourceSketch = new SpaceSavingSketch(sketchCounters);
+		 }
+		 this.uniquePrecision = uniquePrecision;
+		 if (uniquePrecision > 0) {
+			 this.uniques = new UniqueCountTracker(uniquePrecision);
+		 }
+		 this.logins = new LoginFailureDetector();
 		 this.blockedRequests = new ArrayList<Request>();
+		 this.blockedSink = new ListSink(blockedRequests);
 	}
 	
 	public void logRequest(String ip, Request newRequest) {
-		int val = 0;
-		User cur;
-		// Check if new User
-		if (ipToUser.containsKey(ip)) {
-			cur = ipToUser.get(ip);
-			val = users.get(cur);
+		long startTime = Metrics.now();
+		String address = newRequest.getAddress();
+		boolean login;
+		if (hostSketch == null) {
+			int host = internHost(ip);
+			hostRequests[host]++;
+			int resource = internResource(address);
+			resourceBytes[resource] += newRequest.getBytes();
+			login = resource == loginResource;
 		} else {
-			cur = new User(ip);	
-			ipToUser.put(ip, cur);
+			hostSketch.offer(ip, 1);
+			resourceSketch.offer(address, newRequest.getBytes());
+			login = LoginFailureDetector.isLogin(address);
 		}
-		// Check if new Request
-		if (bandwidthTracker.containsKey(newRequest.getAddress())) {
-			bandwidthTracker.put(newRequest.getAddress(), 
-					bandwidthTracker.get(newRequest.getAddress()) + newRequest.getBytes());
-		} else {
-			bandwidthTracker.put(newRequest.getAddress(), newRequest.getBytes());
+		if (countRequest(ip, address, newRequest.getTime(), newRequest.getZoneOffset(), 
+				newRequest.getBytes(), login, newRequest.getHTTPcode())) {
+			blockedSink.add(newRequest);
 		}
-		users.put(cur, val + 1);
-		
-		boolean justBlocked = false;
-		if (cur.isBlocked()) {
-			blockedRequests.add(newRequest);
-			justBlocked = true;
-		}
-		cur.addRequest(newRequest);
-		if (!cur.isBlocked() && justBlocked) {
-			blockedRequests.remove(blockedRequests.size() - 1);
-		}
-		if (linearTimeMap.size() == 0) {
-			linearTimeMap.put(newRequest.getClockString(), newRequest);
-			date = newRequest.getDateString();
+		Metrics.LOG.recordSince(startTime);
+	}
+	
+	void logLine(ParsedLine line) {
+		long startTime = Metrics.now();
+		ByteBuffer buffer = line.getBuffer();
+		String ip;
+		String address;
+		boolean login;
+		if (hostSketch == null) {
+			int host = internHost(buffer, line.getHostStart(), line.getHostEnd());
+			hostRequests[host]++;
+			int resource = internResource(buffer, line.getAddressStart(), line.getAddressEnd());
+			resourceBytes[resource] += line.getBytes();
+			ip = hosts.getSymbol(host);
+			address = resources.getSymbol(resource);
+			login = resource == loginResource;
 		} else {
-			updateLinearTimeMap(newRequest);
-		}
-	}
-	
-	private void updateLinearTimeMap(Request newRequest) {
-		String lastTime = linearTimeMap.lastKey();
-		String nextRequestTime = newRequest.getClockString();
-		while (!lastTime.equals(nextRequestTime)) {
-			String [] hms = lastTime.split(":");
-			if (hms[2].equals("59")) {
-				if (hms[1].equals("59")) {
-					int hs = Integer.parseInt(hms[0]);
-					hs++;
-					String hsString = "" + hs;
-					if (hs < 10) {
-						hsString = "0" + hs;
-					}
-					lastTime = hsString + ":" + "00" + ":" + "00";
-				} else {
-					int mins = Integer.parseInt(hms[1]);
-					mins++;
-					String minsString = "" + mins;
-					if (mins < 10) {
-						minsString = "0" + mins;
-					}
-					lastTime = hms[0] + ":" + minsString + ":" + "00";
-				}
-			} else {
-				int secs = Integer.parseInt(hms[2]);
-				secs++;
-				String secsString = "" + secs;
-				if (secs < 10) {
-					secsString = "0" + secs;
-				}
-				lastTime = hms[0] + ":" + hms[1] + ":" + secsString;
-			}
-			linearTimeMap.put(lastTime, new Request("0/0/0:00:00:00", "none", 
-					"none", "none", 0, "none"));
+			ip = line.getHost();
+			address = line.getAddress();
+			hostSketch.offer(ip, 1);
+			resourceSketch.offer(address, line.getBytes());
+			login = line.isAddress(LoginFailureDetector.LOGIN);
+		}
+		if (countRequest(ip, address, line.getEpochSecond(), line.getZoneOffset(), line.getBytes(), 
+				login, line.getHTTPcodeValue())) {
+			blockedSink.add(line.toRequest());
 		}
-		linearTimeMap.put(lastTime, newRequest);
+		Metrics.LOG.recordSince(startTime);
 	}
 	
-	private boolean moreThanHour(String timeOne, String timeTwo) {
-		if (timeOne == null || timeTwo == null) {
-			return false;
+	private boolean countRequest(String ip, String address, long time, int zoneOffset, int bytes, 
+			boolean login, int status) {
+		if (uniques != null) {
+			uniques.count(time, zoneOffset, ip, address);
 		}
-		String[] timeOneArr = timeOne.split(":");
-		String[] timeTwoArr = timeTwo.split(":");
-		if (timeOneArr[1].equals(timeTwoArr[1]) && timeOneArr[2].equals(timeTwoArr[2])) {
-			int hourOne = Integer.parseInt(timeOneArr[0]);
-			int hourTwo = Integer.parseInt(timeTwoArr[0]);
-			return hourOne > hourTwo;
+		if (timeline != null) {
+			timeline.count(time, zoneOffset, ip, address, bytes);
 		}
-		return false;
+		boolean blocked = logins.check(ip, time, login, status);
+		countSecond(time, zoneOffset, 1);
+		return blocked;
 	}
 	
-	private int iterateThroughLinearTimeMap() {
-		int numRequests = 1;
-		for (Map.Entry<String, Request> entry : linearTimeMap.entrySet()) {
-			busyQueue.offerLast(entry.getKey());
-			if (!linearTimeMap.get(entry.getKey()).getAddress().equals("none")) {
-				numRequests++;
-			}
-			if (moreThanHour(entry.getKey(), busyQueue.peekFirst())) {
-				String remove = busyQueue.removeFirst();
-				if (!linearTimeMap.get(remove).getAddress().equals("none")) {
-					numRequests--;
-				}
-			}
-			if (!busiestTimes.containsKey(busyQueue.peekFirst()) || 
-					busiestTimes.get(busyQueue.peekFirst()) < numRequests) {
-				busiestTimes.put(busyQueue.peekFirst(), numRequests);
-			}
+	void countSecond(long second, int zoneOffset, int requests) {
+		if (pendingRequests > 0 && second != pendingSecond) {
+			flushSecond();
+		}
+		pendingSecond = second;
+		pendingZone = zoneOffset;
+		pendingRequests += requests;
+	}
+	
+	private int internHost(String ip) {
+		int host = hosts.intern(ip);
+		if (host == hostRequests.length) {
+			hostRequests = Arrays.copyOf(hostRequests, host * 2);
 		}
-		return numRequests;
-	}
-	
-	public User[] getTopTenUserNames() {
-        Set<Entry<User, Integer>> userSet = users.entrySet();
-        List<Entry<User, Integer>> userList = new ArrayList<Entry<User, Integer>>(userSet);
-		Collections.sort(userList, new Comparator<Map.Entry<User, Integer>>() {
-            public int compare(Map.Entry<User, Integer> hOne, Map.Entry<User, Integer> hTwo) {
-            	// Lexicographic comparison if the values are equal
-            	if (hTwo.getValue() == hOne.getValue()) {
-            		return hOne.getKey().getIP().compareTo(hTwo.getKey().getIP());
-            	}
-                return (hTwo.getValue()).compareTo(hOne.getValue());
-            }
-        });
-		// Check if less than ten users
-		int tenSize = 10;
-		if (tenSize > users.size()) {
-			tenSize = users.size();
-		}
-		User[] ten = new User[tenSize];
-        for (int i = 0; i < ten.length; i++) {
-        	User p = userList.get(i).getKey();
-        	ten[i] = p;
-        }
-        return ten;
+		return host;
+	}
+	
+	private int internHost(ByteBuffer buffer, int start, int end) {
+		int host = hosts.intern(buffer, start, end);
+		if (host == hostRequests.length) {
+			hostRequests = Arrays.copyOf(hostRequests, host * 2);
+		}
+		return host;
+	}
+	
+	private int internResource(String address) {
+		int count = resources.size();
+		int resource = resources.intern(address);
+		if (resource == count) {
+			addedResource(resource);
+		}
+		return resource;
+	}
+	
+	private int internResource(ByteBuffer buffer, int start, int end) {
+		int count = resources.size();
+		int resource = resources.intern(buffer, start, end);
+		if (resource == count) {
+			addedResource(resource);
+		}
+		return resource;
+	}
+	
+	private void addedResource(int resource) {
+		if (resource == resourceBytes.length) {
+			resourceBytes = Arrays.copyOf(resourceBytes, resource * 2);
+		}
+		if (LoginFailureDetector.isLogin(resources.getSymbol(resource))) {
+			loginResource = resource;
+		}
+	}
+	
+	public void merge(Server other) {
+		for (int otherHost = 0; otherHost < other.hosts.size(); otherHost++) {
+			int host = internHost(other.hosts.getSymbol(otherHost));
+			hostRequests[host] += other.hostRequests[otherHost];
+		}
+		for (int otherResource = 0; otherResource < other.resources.size(); otherResource++) {
+			int resource = internResource(other.resources.getSymbol(otherResource));
+			resourceBytes[resource] += other.resourceBytes[otherResource];
+		}
+		if (hostSketch != null) {
+			hostSketch.merge(other.hostSketch);
+			resourceSketch.merge(other.resourceSketch);
+		}
+		if (uniques != null) {
+			uniques.merge(other.uniques);
+		}
+		flushSecond();
+		other.flushSecond();
+		// A shard tracks no windows, see emptyShard
+		for (int i = 0; i < other.busyWindows.length; i++) {
+			busyWindows[i].merge(other.busyWindows[i]);
+		}
+	}
+	
+	private void flushSecond() {
+		if (pendingRequests == 0) {
+			return;
+		}
+		for (BusyWindowTracker tracker : busyWindows) {
+			tracker.count(pendingSecond, pendingZone, pendingRequests);
+		}
+		pendingRequests = 0;
+	}
+	
+	public String[] getTopTenUserNames() {
+		return getTopUserNames(10);
+	}
+	
+	public String[] getTopUserNames(int k) {
+		if (hostSketch != null) {
+			return keysOf(hostSketch.top(k));
+		}
+		return symbolsOf(new TopKSelector(hostRequests, hosts, k).select(), hosts);
+	}
+	
+	public long getRequestCount(String host) {
+		if (hostSketch != null) {
+			return hostSketch.getCount(host);
+		}
+		int id = hosts.find(host);
+		return id < 0 ? 0 : hostRequests[id];
 	}
 	
 	public String[] getTopTenRequests() {
-        Set<Entry<String, Integer>> bandwidthSet = bandwidthTracker.entrySet();
-        List<Entry<String, Integer>> bandwidthList = new ArrayList<Entry<String, Integer>>(bandwidthSet);
-		Collections.sort(bandwidthList, new Comparator<Map.Entry<String, Integer>>() {
-            public int compare(Map.Entry<String, Integer> hOne, Map.Entry<String, Integer> hTwo) {
-            	// Lexicographic comparison if the values are equal
-            	if (hTwo.getValue() == hOne.getValue()) {
-            		return hOne.getValue().compareTo(hTwo.getValue());
-            	}
-                return (hTwo.getValue()).compareTo(hOne.getValue());
-            }
-        });
-		// Check if less than ten resources
-		int tenSize = 10;
-		if (tenSize > bandwidthTracker.size()) {
-			tenSize = bandwidthTracker.size();
-		}
-		String[] ten = new String[tenSize];
-		for (int i = 0; i < ten.length; i++) {
-			String r = bandwidthList.get(i).getKey();
-			ten[i] = r;
-		}
-		return ten;
-	}
-	
-	public List<Entry<String, Integer>> ripQueueReturn() {
-		int numRequests = iterateThroughLinearTimeMap();
-		while (busyQueue.size() > 0) {
-			String key = busyQueue.removeFirst();
-			if (!linearTimeMap.get(key).getAddress().equals("none")) {
-				numRequests--;
-			}
-			if (!busiestTimes.containsKey(key) || 
-					busiestTimes.get(key) < numRequests) {
-				busiestTimes.put(key, numRequests);
+		return getTopRequests(10);
+	}
+	
+	public String[] getTopRequests(int k) {
+		if (resourceSketch != null) {
+			return keysOf(resourceSketch.top(k));
+		}
+		return symbolsOf(new TopKSelector(resourceBytes, resources, k).select(), resources);
+	}
+	
+	public List<HeavyHitter> getHeavyHosts(int k) {
+		if (hostSketch != null) {
+			return hostSketch.top(k);
+		}
+		return heavyHittersOf(new TopKSelector(hostRequests, hosts, k).select(), hosts, hostRequests);
+	}
+	
+	public List<HeavyHitter> getHeavyResources(int k) {
+		if (resourceSketch != null) {
+			return resourceSketch.top(k);
+		}
+		return heavyHittersOf(new TopKSelector(resourceBytes, resources, k).select(), resources, resourceBytes);
+	}
+	
+	Ranking rankHosts() {
+		if (hostSketch != null) {
+			return Ranking.fromHitters(hostSketch.top(sketchCounters));
+		}
+		return new Ranking(hosts.copySymbols(), Arrays.copyOf(hostRequests, hosts.size()), null);
+	}
+	
+	Ranking rankResources() {
+		if (resourceSketch != null) {
+			return Ranking.fromHitters(resourceSketch.top(sketchCounters));
+		}
+		return new Ranking(resources.copySymbols(), Arrays.copyOf(resourceBytes, resources.size()), null);
+	}
+	
+	public int getHostCount() {
+		return hosts.size();
+	}
+	
+	public int getResourceCount() {
+		return resources.size();
+	}
+	
+	public boolean isApproximate() {
+		return hostSketch != null;
+	}
+	
+	private static String[] symbolsOf(int[] ids, SymbolTable symbols) {
+		String[] names = new String[ids.length];
+		for (int i = 0; i < ids.length; i++) {
+			names[i] = symbols.getSymbol(ids[i]);
+		}
+		return names;
+	}
+	
+	private static String[] keysOf(List<HeavyHitter> hitters) {
+		String[] keys = new String[hitters.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = hitters.get(i).getKey();
+		}
+		return keys;
+	}
+	
+	private static List<HeavyHitter> heavyHittersOf(int[] ids, SymbolTable symbols, long[] values) {
+		List<HeavyHitter> hitters = new ArrayList<HeavyHitter>(ids.length);
+		for (int id : ids) {
+			hitters.add(new HeavyHitter(symbols.getSymbol(id), values[id], 0));
+		}
+		return hitters;
+	}
+	
+	public List<BusyWindow> ripQueueReturn() {
+		return getBusiestWindows(WINDOW_SECONDS);
+	}
+	
+	public List<BusyWindow> getBusiestWindows(int windowSeconds) {
+		flushSecond();
+		for (int i = 0; i < windowLengths.length; i++) {
+			if (windowLengths[i] == windowSeconds) {
+				return busyWindows[i].getBusiestWindows();
 			}
 		}
-        Set<Entry<String, Integer>> timeSet = busiestTimes.entrySet();
-        List<Entry<String, Integer>> timeList = new ArrayList<Entry<String, Integer>>(timeSet);
-		Collections.sort(timeList, new Comparator<Map.Entry<String, Integer>>() {
-            public int compare(Map.Entry<String, Integer> hOne, Map.Entry<String, Integer> hTwo) {
-            	if (hTwo.getValue() == hOne.getValue()) {
-            		return hOne.getKey().compareTo(hTwo.getKey());
-            	}
-                return (hTwo.getValue()).compareTo(hOne.getValue());
-            }
-        });
-		return timeList;
+		return Collections.emptyList();
+	}
+	
+	public boolean countsUniques() {
+		return uniques != null;
+	}
+	
+	public List<UniqueCount> getUniqueHours() {
+		if (uniques == null) {
+			return Collections.emptyList();
+		}
+		return uniques.getHours();
+	}
+	
+	public List<UniqueCount> getUniqueDays() {
+		if (uniques == null) {
+			return Collections.emptyList();
+		}
+		return uniques.getDays();
+	}
+	
+	public int[] getWindowLengths() {
+		return windowLengths.clone();
+	}
+	
+	Server emptyCopy() {
+		return new Server(topWindows, nonOverlapping, windowLengths, sketchCounters, uniquePrecision);
+	}
+	
+	Server emptyShard() {
+		return new Server(topWindows, nonOverlapping, new int[0], sketchCounters, uniquePrecision);
+	}
+	
+	public void writeTo(DataOutput out) throws IOException {
+		Checkpoint.writeInts(out, windowLengths, windowLengths.length);
+		out.writeInt(topWindows);
+		out.writeBoolean(nonOverlapping);
+		out.writeInt(sketchCounters);
+		out.writeInt(uniquePrecision);
+		hosts.writeTo(out);
+		Checkpoint.writeLongs(out, hostRequests, hosts.size());
+		resources.writeTo(out);
+		Checkpoint.writeLongs(out, resourceBytes, resources.size());
+		if (hostSketch != null) {
+			hostSketch.writeTo(out);
+			resourceSketch.writeTo(out);
+		}
+		if (uniques != null) {
+			uniques.writeTo(out);
+		}
+		for (BusyWindowTracker tracker : busyWindows) {
+			tracker.writeTo(out);
+		}
+		out.writeLong(pendingSecond);
+		out.writeInt(pendingZone);
+		out.writeInt(pendingRequests);
+		logins.writeTo(out);
+	}
+	
+	public boolean readFrom(DataInput in) throws IOException {
+		boolean sameSettings = Arrays.equals(Checkpoint.readInts(in), windowLengths);
+		sameSettings &= in.readInt() == topWindows;
+		sameSettings &= in.readBoolean() == nonOverlapping;
+		sameSettings &= in.readInt() == sketchCounters;
+		sameSettings &= in.readInt() == uniquePrecision;
+		if (!sameSettings) {
+			return false;
+		}
+		hosts.readFrom(in);
+		long[] savedRequests = Checkpoint.readLongs(in);
+		hostRequests = Arrays.copyOf(savedRequests, Math.max(DEFAULT_CAPACITY, savedRequests.length * 2));
+		resources.readFrom(in);
+		long[] savedBytes = Checkpoint.readLongs(in);
+		resourceBytes = Arrays.copyOf(savedBytes, Math.max(DEFAULT_CAPACITY, savedBytes.length * 2));
+		loginResource = resources.find(LoginFailureDetector.LOGIN);
+		if (hostSketch != null) {
+			hostSketch.readFrom(in);
+			resourceSketch.readFrom(in);
+		}
+		if (uniques != null) {
+			uniques.readFrom(in);
+		}
+		for (BusyWindowTracker tracker : busyWindows) {
+			tracker.readFrom(in);
+		}
+		pendingSecond = in.readLong();
+		pendingZone = in.readInt();
+		pendingRequests = in.readInt();
+		logins.readFrom(in);
+		return true;
 	}
 	
 	public List<Request> getBlockedRequests() {
 		return blockedRequests;
 	}
-
-	public String getDateOfRequests() {
-		return date;
+	
+	BlockedSink getBlockedSink() {
+		return blockedSink;
+	}
+	
+	void setBlockedSink(BlockedSink blockedSink) {
+		this.blockedSink = blockedSink;
+	}
+	
+	LoginFailureDetector getLoginDetector() {
+		return logins;
+	}
+	
+	void setLoginDetector(LoginFailureDetector logins) {
+		this.logins = logins;
+	}
+	
+	void setTimeline(RequestTimeline timeline) {
+		this.timeline = timeline;
+	}
+	
+	private static class ListSink implements BlockedSink {
+		private List<Request> requests;
+		
+		ListSink(List<Request> requests) {
+			this.requests = requests;
+		}
+		
+		public void add(Request request) {
+			requests.add(request);
+		}
+		
+		public void flush() {
+		}
+		
+		public long getCount() {
+			return requests.size();
+		}
 	}
 }
\ No newline at end of file
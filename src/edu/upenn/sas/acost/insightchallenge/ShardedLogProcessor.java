@@ -0,0 +1,349 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * ShardedLogProcessor class: splits the work by host instead of by
+ * position in the log. The calling thread reads the log and hands every
+ * line, unparsed, to one of N shards picked by a hash of its host, so all
+ * requests of a host go to the same shard and arrive there in log order.
+ * Each shard has one worker thread, the only writer of its own Server,
+ * which parses its lines and applies the host counts, resource bytes and
+ * failed login rules to them, so the blocked logins stay exact without
+ * any locking.
+ *
+ * The resource bytes do not belong to one host, so they are striped, the
+ * same way a LongAdder keeps one cell per thread: every shard sums the
+ * bytes of its own lines, and the stripes are added up once at the end.
+ *
+ * The per-second counts are not striped. A BusyWindowTracker takes the
+ * seconds in log order and counts a late line at the oldest second it
+ * still keeps, so striped counts would only give the same hours.txt as a
+ * sequential run if every shard kept every second until the end, and
+ * blocked.txt has to be in log order as well. Instead a shard writes the
+ * second of each line it parses, and the Request of each line it blocks,
+ * back into the batch the line came in. The reader keeps a ring with the
+ * shard of every line it has handed out but not yet retired, and retires
+ * lines in log order: it waits once per batch for the shard to parse it,
+ * then counts each line's second into the server's busiest windows and
+ * passes a blocked request to the server's BlockedSink. A batch is reused
+ * once all its lines are retired. No shard keeps anything per second or
+ * per blocked request, and blocked.txt is written as the log is read.
+ *
+ * The cost is a serial pass over every line on the reader, on top of
+ * reading the log: a few array reads and a countSecond per line. Parsing,
+ * interning and the login rules scale with the shards, retiring does not,
+ * so it bounds the speedup.
+ *
+ * Lines travel to a shard in batches through a bounded queue, and the
+ * reader only retires lines when it needs a batch back, so it slows down
+ * when a shard falls behind and memory stays bounded by the batches.
+ * Threads only synchronize once per batch.
+ *
+ * Method Name - Description : Runtime
+ * process     - reads the whole log through the shards into a       : O(n/p + n), where p is the number of shards,
+ *               server                                                 the n for retiring every line on the reader
+ ******************************/
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+class ShardedLogProcessor {
+	private static final int BATCH_BYTES = 1 << 18;
+	private static final int BATCH_LINES = 4096;
+	private static final int BATCHES_PER_SHARD = 8;
+	// Marks a line the shard could not parse, or has not parsed yet
+	private static final long NO_SECOND = Long.MIN_VALUE;
+	private String path;
+	private int shardCount;
+	private boolean mapped;
+	private long malformedLines;
+	private volatile Throwable failure;
+
+	public ShardedLogProcessor(String path, int shardCount, boolean mapped) {
+		this.path = path;
+		this.shardCount = shardCount;
+		this.mapped = mapped;
+	}
+
+	public void process(Server server) throws IOException {
+		Shard[] shards = new Shard[shardCount];
+		ExecutorService workers = Executors.newFixedThreadPool(shardCount);
+		try {
+			for (int i = 0; i < shardCount; i++) {
+				shards[i] = new Shard(server.emptyShard());
+				workers.execute(shards[i]);
+			}
+			Dispatcher dispatcher = new Dispatcher(shards, server);
+			if (mapped) {
+				new MappedLogReader(path).read(dispatcher);
+			} else {
+				new StreamLogReader(path).read(dispatcher);
+			}
+			dispatcher.finish();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while processing " + path, e);
+		} finally {
+			workers.shutdownNow();
+		}
+		if (failure != null) {
+			throw new IOException("Shard failed while processing " + path, failure);
+		}
+		LoginFailureDetector logins = new LoginFailureDetector();
+		for (int i = 0; i < shardCount; i++) {
+			server.merge(shards[i].server);
+			logins.merge(shards[i].server.getLoginDetector());
+			malformedLines += shards[i].getMalformedLines();
+			// Let the merged shard go before the next one is merged
+			shards[i] = null;
+		}
+		server.setLoginDetector(logins);
+	}
+
+	public long getMalformedLines() {
+		return malformedLines;
+	}
+
+	/*
+	 * Reads the log on the calling thread, routes each line to its shard and
+	 * retires the lines in log order
+	 */
+	private class Dispatcher implements LineHandler {
+		private Shard[] shards;
+		private Server server;
+		private BlockedSink blocked;
+		private Batch[] filling;
+		// Batches handed to each shard and not yet retired, oldest first
+		private List<ArrayDeque<Batch>> inFlight;
+		private List<ArrayDeque<Batch>> ready;
+		// Shard of every line handed out and not yet retired
+		private int[] route;
+		private long dispatched;
+		private long retired;
+
+		Dispatcher(Shard[] shards, Server server) {
+			this.shards = shards;
+			this.server = server;
+			this.blocked = server.getBlockedSink();
+			this.filling = new Batch[shards.length];
+			this.inFlight = new ArrayList<ArrayDeque<Batch>>(shards.length);
+			this.ready = new ArrayList<ArrayDeque<Batch>>(shards.length);
+			for (int i = 0; i < shards.length; i++) {
+				inFlight.add(new ArrayDeque<Batch>(BATCHES_PER_SHARD));
+				ArrayDeque<Batch> batches = new ArrayDeque<Batch>(BATCHES_PER_SHARD);
+				for (int j = 0; j < BATCHES_PER_SHARD; j++) {
+					batches.add(new Batch());
+				}
+				ready.add(batches);
+			}
+			this.route = new int[shards.length * BATCHES_PER_SHARD * BATCH_LINES];
+		}
+
+		public void handleLine(ByteBuffer buffer, int start, int end) {
+			int hash = 0x811c9dc5;
+			for (int i = start; i < end && buffer.get(i) != ' '; i++) {
+				hash = (hash ^ buffer.get(i)) * 0x01000193;
+			}
+			hash ^= hash >>> 16;
+			int shard = (hash & 0x7fffffff) % shards.length;
+			try {
+				if (filling[shard] != null && !filling[shard].fits(end - start)) {
+					send(shard);
+				}
+				if (filling[shard] == null) {
+					while (ready.get(shard).isEmpty()) {
+						retireLine();
+					}
+					filling[shard] = ready.get(shard).poll();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while dispatching line " + dispatched, e);
+			}
+			filling[shard].add(buffer, start, end);
+			route[(int) (dispatched++ % route.length)] = shard;
+		}
+
+		void finish() throws InterruptedException {
+			while (retired < dispatched) {
+				retireLine();
+			}
+			for (Shard shard : shards) {
+				shard.full.put(Batch.END);
+			}
+		}
+
+		private void send(int shard) throws InterruptedException {
+			inFlight.get(shard).add(filling[shard]);
+			// Never blocks, a shard has no more batches than the queue holds
+			shards[shard].full.put(filling[shard]);
+			filling[shard] = null;
+		}
+
+		private void retireLine() throws InterruptedException {
+			int shard = route[(int) (retired % route.length)];
+			if (inFlight.get(shard).isEmpty()) {
+				// The line still sits in the batch being filled
+				send(shard);
+			}
+			Batch batch = inFlight.get(shard).peek();
+			if (batch.retiredCount == 0) {
+				// Once per batch, after which all the shard wrote into it is visible
+				batch.awaitParsed();
+			}
+			int line = batch.retiredCount++;
+			if (batch.seconds[line] != NO_SECOND) {
+				server.countSecond(batch.seconds[line], batch.zones[line], 1);
+			}
+			if (batch.blocked[line] != null) {
+				blocked.add(batch.blocked[line]);
+			}
+			if (batch.retiredCount == batch.lineCount) {
+				inFlight.get(shard).poll();
+				batch.clear();
+				ready.get(shard).add(batch);
+			}
+			retired++;
+		}
+	}
+
+	/*
+	 * One shard: its worker, its Server and the striped totals of its lines.
+	 * Its server's blocked requests go back into the batch of their line
+	 */
+	private class Shard extends RequestLineHandler implements Runnable, BlockedSink {
+		private Server server;
+		private BlockingQueue<Batch> full;
+		private Batch current;
+		private int currentLine;
+		private long blockedCount;
+
+		Shard(Server server) {
+			super(server);
+			this.server = server;
+			this.full = new ArrayBlockingQueue<Batch>(BATCHES_PER_SHARD + 1);
+			server.setBlockedSink(this);
+		}
+
+		public void run() {
+			try {
+				while (true) {
+					Batch batch = full.take();
+					if (batch == Batch.END) {
+						break;
+					}
+					if (failure == null) {
+						try {
+							parse(batch);
+						} catch (Throwable e) {
+							// Keep handing batches back so the reader never waits on this shard
+							failure = e;
+						}
+					}
+					batch.markParsed();
+				}
+			} catch (InterruptedException e) {
+				// Processing was abandoned
+			}
+		}
+
+		private void parse(Batch batch) {
+			current = batch;
+			ByteBuffer buffer = ByteBuffer.wrap(batch.data);
+			for (int i = 0; i < batch.lineCount; i++) {
+				currentLine = i;
+				handleLine(buffer, batch.starts[i], batch.ends[i]);
+			}
+		}
+
+		@Override
+		protected void logLine(ParsedLine line) {
+			super.logLine(line);
+			current.seconds[currentLine] = line.getEpochSecond();
+			current.zones[currentLine] = line.getZoneOffset();
+		}
+
+		public void add(Request request) {
+			current.blocked[currentLine] = request;
+			blockedCount++;
+		}
+
+		public void flush() {
+		}
+
+		public long getCount() {
+			return blockedCount;
+		}
+	}
+
+	/*
+	 * Whole lines bound for one shard, copied out of the reader's buffer,
+	 * and what the shard found for each of them
+	 */
+	private static class Batch {
+		// Tells a shard that the log has ended
+		private static final Batch END = new Batch();
+		private byte[] data = new byte[BATCH_BYTES];
+		private int length;
+		private int[] starts = new int[BATCH_LINES];
+		private int[] ends = new int[BATCH_LINES];
+		private long[] seconds = new long[BATCH_LINES];
+		private int[] zones = new int[BATCH_LINES];
+		private Request[] blocked = new Request[BATCH_LINES];
+		private int lineCount;
+		private int retiredCount;
+		private boolean parsed;
+
+		boolean fits(int lineLength) {
+			// An empty batch takes any line, growing if it has to
+			return lineCount == 0 || (lineCount < BATCH_LINES && length + lineLength <= data.length);
+		}
+
+		void add(ByteBuffer buffer, int start, int end) {
+			int lineLength = end - start;
+			if (length + lineLength > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, length + lineLength));
+			}
+			if (buffer.hasArray()) {
+				System.arraycopy(buffer.array(), buffer.arrayOffset() + start, data, length, lineLength);
+			} else {
+				for (int i = 0; i < lineLength; i++) {
+					data[length + i] = buffer.get(start + i);
+				}
+			}
+			starts[lineCount] = length;
+			ends[lineCount] = length + lineLength;
+			seconds[lineCount] = NO_SECOND;
+			lineCount++;
+			length += lineLength;
+		}
+
+		synchronized void markParsed() {
+			parsed = true;
+			notifyAll();
+		}
+
+		synchronized void awaitParsed() throws InterruptedException {
+			while (!parsed) {
+				wait();
+			}
+		}
+
+		void clear() {
+			Arrays.fill(blocked, 0, lineCount, null);
+			length = 0;
+			lineCount = 0;
+			retiredCount = 0;
+			parsed = false;
+		}
+	}
+}
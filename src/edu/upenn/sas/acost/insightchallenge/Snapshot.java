@@ -0,0 +1,149 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * Snapshot class: an unchanging view of a Server and its RequestTimeline
+ * at one moment, as QueryServer publishes them. capture runs on the
+ * thread that logs the requests and only copies: the counts of every host
+ * and resource into two Rankings, a frozen timeline and the hosts blocked
+ * at the time, so it costs the server O(n) array copies and no ranking.
+ * rank then ranks the copies on another thread before the snapshot is
+ * published, and everything else a query needs is worked out from the
+ * copy on the thread that asks, so queries never wait for the server and
+ * the server never waits for a query.
+ *
+ * Without a range the top hosts and resources are the exact counts of
+ * the whole log, or the server's own counters if it is approximate. With
+ * one, from and to in epoch seconds, they come from the hourly sketches
+ * of the timeline, so they cover every hour the range touches and are
+ * approximate, unless the range holds the whole log. The busiest windows
+ * are exact for any range; a window is in the range if it starts in it.
+ * Blocked hosts are the ones blocked as of the latest request, and in a
+ * range if their block started in it.
+ *
+ * The copies are not incremental: every capture copies a name and a
+ * count for each host and resource, about 12 bytes apiece, while the
+ * logging thread waits. With 2.5 million hosts that is some 30 MB and
+ * under 10 ms per capture, so a short publish interval on a log with that
+ * many hosts costs the logging a few percent and the heap that garbage.
+ *
+ * Method Name      - Description : Runtime
+ * capture          - copies what queries need from a server         : O(n + h), where n is the hosts and resources and h the hours
+ * rank             - ranks the hosts and resources ahead of queries : O(n*logk)
+ * topHosts         - returns the k hosts with the most requests     : O(k), see Ranking; O(h*m*logm) in a range
+ * topResources     - returns the k resources with the most bytes    : O(k); O(h*m*logm) in a range
+ * isApproximate    - returns true if the top hosts and resources of : O(1)
+ *                    a range come with error bounds
+ * busiestWindows   - returns the k busiest windows of a length      : O(s*logk), where s is the seconds in the range
+ * blockedHosts     - returns up to k blocked hosts, by block start  : O(b), where b is the number of blocked hosts
+ * getLines         - returns the lines logged when captured         : O(1)
+ * getHostCount     - returns the number of hosts                    : O(1)
+ * getResourceCount - returns the number of resources                : O(1)
+ * getFirstSecond   - returns the first second of the log            : O(1)
+ * getLastSecond    - returns the latest second of the log           : O(1)
+ * getCapturedMillis - returns the wall clock time of the capture    : O(1)
+ * isRange          - private helper that returns true unless a      : O(1)
+ *                    range holds the whole log
+ ******************************/
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+class Snapshot {
+	static final long NO_START = Long.MIN_VALUE;
+	static final long NO_END = Long.MAX_VALUE;
+	private Ranking hosts;
+	private Ranking resources;
+	private RequestTimeline timeline;
+	private List<BlockedHost> blocked;
+	private long lines;
+	private long capturedMillis;
+
+	private Snapshot() {
+	}
+
+	public static Snapshot capture(Server server, RequestTimeline timeline, long lines) {
+		Snapshot snapshot = new Snapshot();
+		snapshot.hosts = server.rankHosts();
+		snapshot.resources = server.rankResources();
+		snapshot.timeline = timeline.freeze();
+		List<BlockedHost> blocked = server.getLoginDetector().getBlockedHosts();
+		Collections.sort(blocked, new Comparator<BlockedHost>() {
+			public int compare(BlockedHost one, BlockedHost two) {
+				if (one.getStart() != two.getStart()) {
+					return Long.compare(one.getStart(), two.getStart());
+				}
+				return one.getHost().compareTo(two.getHost());
+			}
+		});
+		snapshot.blocked = Collections.unmodifiableList(blocked);
+		snapshot.lines = lines;
+		snapshot.capturedMillis = System.currentTimeMillis();
+		return snapshot;
+	}
+
+	public void rank() {
+		hosts.rank();
+		resources.rank();
+	}
+
+	public List<HeavyHitter> topHosts(int k, long from, long to) {
+		return isRange(from, to) ? timeline.topHosts(k, from, to) : hosts.top(k);
+	}
+
+	public List<HeavyHitter> topResources(int k, long from, long to) {
+		return isRange(from, to) ? timeline.topResources(k, from, to) : resources.top(k);
+	}
+
+	public boolean isApproximate(long from, long to) {
+		return isRange(from, to) || hosts.isApproximate();
+	}
+
+	public List<BusyWindow> busiestWindows(int k, int windowSeconds, long from, long to) {
+		return timeline.busiestWindows(k, windowSeconds, from, to);
+	}
+
+	public List<BlockedHost> blockedHosts(int k, long from, long to) {
+		List<BlockedHost> hosts = new ArrayList<BlockedHost>();
+		for (BlockedHost host : blocked) {
+			if (hosts.size() == k) {
+				break;
+			}
+			if (host.getStart() >= from && host.getStart() < to) {
+				hosts.add(host);
+			}
+		}
+		return hosts;
+	}
+
+	public long getLines() {
+		return lines;
+	}
+
+	public int getHostCount() {
+		return hosts.size();
+	}
+
+	public int getResourceCount() {
+		return resources.size();
+	}
+
+	public long getFirstSecond() {
+		return timeline.getFirstSecond();
+	}
+
+	public long getLastSecond() {
+		return timeline.getLastSecond();
+	}
+
+	public long getCapturedMillis() {
+		return capturedMillis;
+	}
+
+	private boolean isRange(long from, long to) {
+		return from > timeline.getFirstSecond() || to <= timeline.getLastSecond();
+	}
+}
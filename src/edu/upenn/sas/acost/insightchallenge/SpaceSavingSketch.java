@@ -0,0 +1,285 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * SpaceSavingSketch class: finds the heavy hitters of a stream of weighted
+ * keys, such as the requests per host or the bytes per resource, with a
+ * fixed number of counters however many distinct keys there are. A key
+ * that has a counter adds its weight to it. A new key takes over the
+ * smallest counter m, starts at m plus its weight and records m as its
+ * error, since up to m of that count may belong to the keys it replaced.
+ *
+ * Every count is at least the true total of its key and at most its error
+ * above it, and no error is larger than total weight / capacity, so any
+ * key with more than that share of the weight always has a counter. A
+ * key without a counter has a true total of at most the smallest count.
+ *
+ * The counters sit in a min-heap on their counts, so the smallest one is
+ * the root, and are found by key through open addressing over an int[]
+ * of counter ids, as in SymbolTable. Both are sized once, so memory is
+ * fixed by the capacity.
+ *
+ * Method Name - Description : Runtime
+ * offer       - adds the weight of one key                          : O(logm), where m is the capacity
+ * merge       - adds the counts of a sketch of other keys, keeping  : O(m*logm)
+ *               the largest m
+ * getCount    - returns the count of a key, 0 without a counter     : O(1) expected
+ * top         - returns the k largest counts with their errors,     : O(m*logm)
+ *               ties by key
+ * writeTo     - writes the counters for a Checkpoint                : O(m)
+ * readFrom    - replaces the counters with the ones written by      : O(m*logm)
+ *               writeTo
+ * floor       - private helper that returns the most any key        : O(1)
+ *               without a counter can have
+ * insert      - private helper that fills a free counter            : O(logm)
+ * find        - private helper that returns the counter of a key    : O(1) expected
+ * slotOf      - private helper that returns the slot holding a key, : O(1) expected
+ *               or the empty slot it would go in
+ * unlink      - private helper that removes a counter from the      : O(1) expected
+ *               slots, shifting back the ones probed past it
+ * siftUp      - private helper that moves a counter toward the root : O(logm)
+ * siftDown    - private helper that moves a counter toward the      : O(logm)
+ *               leaves
+ ******************************/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+class SpaceSavingSketch {
+	private String[] keys;
+	private int[] hashes;
+	private long[] counts;
+	private long[] errors;
+	// Counter ids ordered as a min-heap on counts, and the heap position of each counter
+	private int[] heap;
+	private int[] positions;
+	// id + 1 of the counter in each slot, 0 for an empty slot
+	private int[] slots;
+	private int size;
+
+	public SpaceSavingSketch(int capacity) {
+		this.keys = new String[capacity];
+		this.hashes = new int[capacity];
+		this.counts = new long[capacity];
+		this.errors = new long[capacity];
+		this.heap = new int[capacity];
+		this.positions = new int[capacity];
+		this.slots = new int[Math.max(2, Integer.highestOneBit(Math.max(1, capacity) * 2) * 2)];
+		this.size = 0;
+	}
+
+	public void offer(String key, long weight) {
+		if (keys.length == 0) {
+			return;
+		}
+		int hash = mix(key.hashCode());
+		int slot = slotOf(key, hash);
+		if (slots[slot] != 0) {
+			int counter = slots[slot] - 1;
+			counts[counter] += weight;
+			siftDown(positions[counter]);
+		} else if (size < keys.length) {
+			insert(key, hash, weight, 0);
+		} else {
+			int counter = heap[0];
+			long smallest = counts[counter];
+			unlink(counter);
+			keys[counter] = key;
+			hashes[counter] = hash;
+			counts[counter] = smallest + weight;
+			errors[counter] = smallest;
+			slots[slotOf(key, hash)] = counter + 1;
+			siftDown(0);
+		}
+	}
+
+	public void merge(SpaceSavingSketch other) {
+		// A key missing from one sketch may have had up to its floor there
+		long floor = floor();
+		long otherFloor = other.floor();
+		final String[] mergedKeys = new String[size + other.size];
+		final long[] mergedCounts = new long[size + other.size];
+		long[] mergedErrors = new long[size + other.size];
+		int merged = 0;
+		for (int counter = 0; counter < size; counter++) {
+			int otherCounter = other.find(keys[counter]);
+			mergedKeys[merged] = keys[counter];
+			mergedCounts[merged] = counts[counter] + (otherCounter < 0 ? otherFloor : other.counts[otherCounter]);
+			mergedErrors[merged] = errors[counter] + (otherCounter < 0 ? otherFloor : other.errors[otherCounter]);
+			merged++;
+		}
+		for (int otherCounter = 0; otherCounter < other.size; otherCounter++) {
+			if (find(other.keys[otherCounter]) < 0) {
+				mergedKeys[merged] = other.keys[otherCounter];
+				mergedCounts[merged] = floor + other.counts[otherCounter];
+				mergedErrors[merged] = floor + other.errors[otherCounter];
+				merged++;
+			}
+		}
+		List<Integer> order = new ArrayList<Integer>(merged);
+		for (int i = 0; i < merged; i++) {
+			order.add(i);
+		}
+		Collections.sort(order, new Comparator<Integer>() {
+			public int compare(Integer one, Integer two) {
+				if (mergedCounts[one] != mergedCounts[two]) {
+					return mergedCounts[one] > mergedCounts[two] ? -1 : 1;
+				}
+				return mergedKeys[one].compareTo(mergedKeys[two]);
+			}
+		});
+		Arrays.fill(slots, 0);
+		size = 0;
+		for (int i = 0; i < Math.min(merged, keys.length); i++) {
+			int kept = order.get(i);
+			insert(mergedKeys[kept], mix(mergedKeys[kept].hashCode()), mergedCounts[kept], mergedErrors[kept]);
+		}
+	}
+
+	public long getCount(String key) {
+		int counter = find(key);
+		return counter < 0 ? 0 : counts[counter];
+	}
+
+	public List<HeavyHitter> top(int k) {
+		List<HeavyHitter> hitters = new ArrayList<HeavyHitter>(size);
+		for (int counter = 0; counter < size; counter++) {
+			hitters.add(new HeavyHitter(keys[counter], counts[counter], errors[counter]));
+		}
+		Collections.sort(hitters, new Comparator<HeavyHitter>() {
+			public int compare(HeavyHitter one, HeavyHitter two) {
+				if (one.getCount() != two.getCount()) {
+					return one.getCount() > two.getCount() ? -1 : 1;
+				}
+				return one.getKey().compareTo(two.getKey());
+			}
+		});
+		return hitters.subList(0, Math.max(0, Math.min(k, hitters.size())));
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int counter = 0; counter < size; counter++) {
+			Checkpoint.writeString(out, keys[counter]);
+			out.writeLong(counts[counter]);
+			out.writeLong(errors[counter]);
+		}
+	}
+
+	public void readFrom(DataInput in) throws IOException {
+		int count = in.readInt();
+		if (count > keys.length) {
+			throw new IOException(count + " counters do not fit in a sketch of " + keys.length);
+		}
+		Arrays.fill(slots, 0);
+		size = 0;
+		for (int i = 0; i < count; i++) {
+			String key = Checkpoint.readString(in);
+			insert(key, mix(key.hashCode()), in.readLong(), in.readLong());
+		}
+	}
+
+	private long floor() {
+		return size < keys.length || size == 0 ? 0 : counts[heap[0]];
+	}
+
+	private void insert(String key, int hash, long count, long error) {
+		int counter = size++;
+		keys[counter] = key;
+		hashes[counter] = hash;
+		counts[counter] = count;
+		errors[counter] = error;
+		slots[slotOf(key, hash)] = counter + 1;
+		heap[counter] = counter;
+		positions[counter] = counter;
+		siftUp(counter);
+	}
+
+	private int find(String key) {
+		return slots[slotOf(key, mix(key.hashCode()))] - 1;
+	}
+
+	private int slotOf(String key, int hash) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != 0) {
+			int counter = slots[slot] - 1;
+			if (hashes[counter] == hash && keys[counter].equals(key)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private void unlink(int counter) {
+		int mask = slots.length - 1;
+		int hole = hashes[counter] & mask;
+		while (slots[hole] != counter + 1) {
+			hole = (hole + 1) & mask;
+		}
+		slots[hole] = 0;
+		// Move back every later id of the run that probed past the hole
+		int slot = hole;
+		while (true) {
+			slot = (slot + 1) & mask;
+			if (slots[slot] == 0) {
+				return;
+			}
+			int home = hashes[slots[slot] - 1] & mask;
+			if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+				slots[hole] = slots[slot];
+				slots[slot] = 0;
+				hole = slot;
+			}
+		}
+	}
+
+	private void siftUp(int position) {
+		int counter = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (counts[heap[parent]] <= counts[counter]) {
+				break;
+			}
+			heap[position] = heap[parent];
+			positions[heap[position]] = position;
+			position = parent;
+		}
+		heap[position] = counter;
+		positions[counter] = position;
+	}
+
+	private void siftDown(int position) {
+		int counter = heap[position];
+		while (true) {
+			int child = position * 2 + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && counts[heap[child + 1]] < counts[heap[child]]) {
+				child++;
+			}
+			if (counts[counter] <= counts[heap[child]]) {
+				break;
+			}
+			heap[position] = heap[child];
+			positions[heap[position]] = position;
+			position = child;
+		}
+		heap[position] = counter;
+		positions[counter] = position;
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,87 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * StreamLogReader class: reads the log through a plain InputStream into
+ * a reusable byte buffer and hands each line to a LineHandler as a slice
+ * of that buffer, the same way MappedLogReader does for mapped windows.
+ * A line that is cut off at the end of the buffer is moved to the front
+ * before the next read; the buffer grows if a single line does not fit.
+ *
+ * Method Name - Description : Runtime
+ * read        - reads every line of the stream                  : O(n), where n is the number of bytes
+ * emit        - private helper that strips a trailing '\r' and   : O(1)
+ *               hands a non-empty line to the handler
+ ******************************/
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+class StreamLogReader {
+	private static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+	private String path;
+
+	public StreamLogReader(String path) {
+		this.path = path;
+	}
+
+	public long read(LineHandler handler) throws IOException {
+		try (InputStream in = new FileInputStream(path)) {
+			return read(in, handler);
+		}
+	}
+
+	public long read(InputStream in, LineHandler handler) throws IOException {
+		byte[] bytes = new byte[DEFAULT_BUFFER_SIZE];
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		long lines = 0;
+		int filled = 0;
+		int scanned = 0;
+		int lineStart = 0;
+		while (true) {
+			long startTime = Metrics.now();
+			int read = in.read(bytes, filled, bytes.length - filled);
+			Metrics.READ.recordSince(startTime);
+			if (read == -1) {
+				break;
+			}
+			Metrics.BYTES_READ.add(read);
+			filled += read;
+			for (int i = scanned; i < filled; i++) {
+				if (bytes[i] == '\n') {
+					lines += emit(buffer, lineStart, i, handler);
+					lineStart = i + 1;
+				}
+			}
+			if (lineStart == 0 && filled == bytes.length) {
+				// Single line longer than the buffer
+				byte[] larger = new byte[bytes.length * 2];
+				System.arraycopy(bytes, 0, larger, 0, filled);
+				bytes = larger;
+				buffer = ByteBuffer.wrap(bytes);
+			} else if (lineStart > 0) {
+				System.arraycopy(bytes, lineStart, bytes, 0, filled - lineStart);
+				filled -= lineStart;
+				lineStart = 0;
+			}
+			scanned = filled;
+		}
+		// A final line without a newline is still a line
+		lines += emit(buffer, lineStart, filled, handler);
+		return lines;
+	}
+
+	private int emit(ByteBuffer buffer, int start, int end, LineHandler handler) {
+		if (end > start && buffer.get(end - 1) == '\r') {
+			end--;
+		}
+		if (end <= start) {
+			return 0;
+		}
+		handler.handleLine(buffer, start, end);
+		return 1;
+	}
+}
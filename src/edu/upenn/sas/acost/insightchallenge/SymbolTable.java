@@ -0,0 +1,189 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * SymbolTable class: interns strings such as hosts and resources into
+ * dense int ids 0, 1, 2, ... in the order they are first seen, so the
+ * counters for them can live in primitive arrays indexed by id. Lookups
+ * use open addressing with linear probing over an int[] of ids, which
+ * needs no entry objects and no boxing; the table doubles once it is
+ * half full.
+ * 
+ * A symbol can also be looked up straight from the bytes of a line, read
+ * as ISO-8859-1 the way ParsedLine decodes them. The bytes hash to the
+ * same value as the String would and are compared against the symbols in
+ * place, so a String is only created the first time a symbol is seen.
+ *
+ * Method Name - Description : Runtime
+ * intern      - returns the id of a symbol, adding it if it is new  : O(1) expected
+ *               the symbol is a String or [start, end) of a buffer
+ * find        - returns the id of a symbol, or -1 if it is unknown  : O(1) expected
+ * getSymbol   - returns the symbol with the given id                : O(1)
+ * size        - returns the number of symbols                       : O(1)
+ * copySymbols - returns the symbols in id order, in a new array      : O(s)
+ * writeTo     - writes the symbols in id order for a Checkpoint     : O(s)
+ * readFrom    - interns the symbols written by writeTo, so they get : O(s)
+ *               the same ids again
+ * add         - private helper that gives a new symbol the next id  : O(1) amortized
+ * slotOf      - private helper that returns the slot holding the    : O(1) expected
+ *               symbol, or the empty slot it would go in
+ * hashOf      - private helper that returns the String hash code of : O(k), where k is the length of the symbol
+ *               the bytes
+ * matches     - private helper that compares a symbol to the bytes  : O(k)
+ * rehash      - private helper that doubles the slot table          : O(s), where s is the number of symbols
+ ******************************/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+class SymbolTable {
+	private static final int DEFAULT_CAPACITY = 1024;
+	private String[] symbols;
+	private int[] hashes;
+	// id + 1 of the symbol in each slot, 0 for an empty slot
+	private int[] slots;
+	private int size;
+
+	public SymbolTable() {
+		this.symbols = new String[DEFAULT_CAPACITY];
+		this.hashes = new int[DEFAULT_CAPACITY];
+		this.slots = new int[DEFAULT_CAPACITY * 2];
+		this.size = 0;
+	}
+
+	public int intern(String symbol) {
+		int hash = mix(symbol.hashCode());
+		int slot = slotOf(symbol, hash);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		return add(symbol, hash, slot);
+	}
+
+	public int intern(ByteBuffer buffer, int start, int end) {
+		int hash = mix(hashOf(buffer, start, end));
+		int slot = slotOf(buffer, start, end, hash);
+		if (slots[slot] != 0) {
+			return slots[slot] - 1;
+		}
+		return add(ParsedLine.decode(buffer, start, end), hash, slot);
+	}
+
+	public int find(String symbol) {
+		int slot = slotOf(symbol, mix(symbol.hashCode()));
+		return slots[slot] - 1;
+	}
+
+	public int find(ByteBuffer buffer, int start, int end) {
+		int slot = slotOf(buffer, start, end, mix(hashOf(buffer, start, end)));
+		return slots[slot] - 1;
+	}
+
+	private int add(String symbol, int hash, int slot) {
+		if (size == symbols.length) {
+			symbols = Arrays.copyOf(symbols, size * 2);
+			hashes = Arrays.copyOf(hashes, size * 2);
+		}
+		int id = size++;
+		symbols[id] = symbol;
+		hashes[id] = hash;
+		slots[slot] = id + 1;
+		if (size * 2 > slots.length) {
+			rehash();
+		}
+		return id;
+	}
+
+	public String getSymbol(int id) {
+		return symbols[id];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public String[] copySymbols() {
+		return Arrays.copyOf(symbols, size);
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int id = 0; id < size; id++) {
+			Checkpoint.writeString(out, symbols[id]);
+		}
+	}
+
+	public void readFrom(DataInput in) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			intern(Checkpoint.readString(in));
+		}
+	}
+
+	private int slotOf(String symbol, int hash) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != 0) {
+			int id = slots[slot] - 1;
+			if (hashes[id] == hash && symbols[id].equals(symbol)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private int slotOf(ByteBuffer buffer, int start, int end, int hash) {
+		int mask = slots.length - 1;
+		int slot = hash & mask;
+		while (slots[slot] != 0) {
+			int id = slots[slot] - 1;
+			if (hashes[id] == hash && matches(symbols[id], buffer, start, end)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int hashOf(ByteBuffer buffer, int start, int end) {
+		int hash = 0;
+		for (int i = start; i < end; i++) {
+			hash = 31 * hash + (buffer.get(i) & 0xFF);
+		}
+		return hash;
+	}
+
+	private static boolean matches(String symbol, ByteBuffer buffer, int start, int end) {
+		if (symbol.length() != end - start) {
+			return false;
+		}
+		for (int i = 0; i < symbol.length(); i++) {
+			if (symbol.charAt(i) != (buffer.get(start + i) & 0xFF)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for (int id = 0; id < size; id++) {
+			int slot = hashes[id] & mask;
+			while (slots[slot] != 0) {
+				slot = (slot + 1) & mask;
+			}
+			slots[slot] = id + 1;
+		}
+	}
+
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ (hash >>> 16);
+	}
+}
@@ -0,0 +1,146 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * TimestampDecoder class: turns log timestamps such as
+ * "01/Jul/1995:00:00:01" and zone offsets such as "-0400" into epoch
+ * seconds. Consecutive lines almost always share the same date, hour and
+ * minute, so the decoder keeps the "dd/MMM/yyyy:HH:mm" prefix of the last
+ * timestamp together with its value and only reads the seconds when the
+ * prefix matches. The last zone offset is cached the same way.
+ *
+ * Method Name - Description : Runtime
+ * decodeLocal - returns the local time of a timestamp in epoch      : O(1)
+ *               seconds, or INVALID
+ * decodeZone  - returns a zone offset in seconds, or INVALID_ZONE   : O(1)
+ * format      - formats epoch seconds in the log's timestamp format : O(1)
+ *               for the given zone offset, only used for output
+ * monthEval   - private helper that converts a month abbreviation   : O(1)
+ *               to its number
+ * digits      - private helper that reads a fixed number of digits  : O(1)
+ ******************************/
+
+import java.nio.ByteBuffer;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+
+class TimestampDecoder {
+	public static final long INVALID = Long.MIN_VALUE;
+	public static final int INVALID_ZONE = Integer.MIN_VALUE;
+	private static final int TIMESTAMP_LENGTH = 20;
+	private static final int PREFIX_LENGTH = 17;
+	private static final int ZONE_LENGTH = 5;
+	private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+	private static final DateTimeFormatter OUTPUT_FORMAT =
+			DateTimeFormatter.ofPattern("dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+	private byte[] cachedPrefix;
+	private long cachedMinute;
+	private boolean hasPrefix;
+	private byte[] cachedZone;
+	private int cachedOffset;
+	private boolean hasZone;
+
+	public TimestampDecoder() {
+		this.cachedPrefix = new byte[PREFIX_LENGTH];
+		this.cachedZone = new byte[ZONE_LENGTH];
+		this.hasPrefix = false;
+		this.hasZone = false;
+	}
+
+	public long decodeLocal(ByteBuffer buffer, int start, int end) {
+		if (end - start != TIMESTAMP_LENGTH) {
+			return INVALID;
+		}
+		boolean hit = hasPrefix;
+		for (int i = 0; hit && i < PREFIX_LENGTH; i++) {
+			hit = buffer.get(start + i) == cachedPrefix[i];
+		}
+		if (!hit) {
+			int day = digits(buffer, start, 2);
+			int month = monthEval(buffer, start + 3);
+			int year = digits(buffer, start + 7, 4);
+			int hour = digits(buffer, start + 12, 2);
+			int minute = digits(buffer, start + 15, 2);
+			if (day < 1 || day > 31 || month < 0 || year < 0 || hour < 0 || hour > 23
+					|| minute < 0 || minute > 59) {
+				return INVALID;
+			}
+			try {
+				cachedMinute = LocalDate.of(year, month, day).toEpochDay() * 86400L
+						+ hour * 3600L + minute * 60L;
+			} catch (DateTimeException e) {
+				return INVALID;
+			}
+			for (int i = 0; i < PREFIX_LENGTH; i++) {
+				cachedPrefix[i] = buffer.get(start + i);
+			}
+			hasPrefix = true;
+		}
+		int second = digits(buffer, start + 18, 2);
+		if (second < 0 || second > 59) {
+			return INVALID;
+		}
+		return cachedMinute + second;
+	}
+
+	public int decodeZone(ByteBuffer buffer, int start, int end) {
+		if (end == start) {
+			return 0;
+		}
+		if (end - start != ZONE_LENGTH) {
+			return INVALID_ZONE;
+		}
+		boolean hit = hasZone;
+		for (int i = 0; hit && i < ZONE_LENGTH; i++) {
+			hit = buffer.get(start + i) == cachedZone[i];
+		}
+		if (hit) {
+			return cachedOffset;
+		}
+		byte sign = buffer.get(start);
+		int hours = digits(buffer, start + 1, 2);
+		int minutes = digits(buffer, start + 3, 2);
+		if ((sign != '-' && sign != '+') || hours < 0 || hours > 18 || minutes < 0 || minutes > 59) {
+			return INVALID_ZONE;
+		}
+		cachedOffset = (sign == '-' ? -1 : 1) * (hours * 3600 + minutes * 60);
+		for (int i = 0; i < ZONE_LENGTH; i++) {
+			cachedZone[i] = buffer.get(start + i);
+		}
+		hasZone = true;
+		return cachedOffset;
+	}
+
+	public static String format(long epochSecond, int zoneOffset) {
+		ZoneOffset offset = ZoneOffset.ofTotalSeconds(zoneOffset);
+		return LocalDateTime.ofEpochSecond(epochSecond, 0, offset).atOffset(offset).format(OUTPUT_FORMAT);
+	}
+
+	private int monthEval(ByteBuffer buffer, int start) {
+		for (int month = 0; month < 12; month++) {
+			if (buffer.get(start) == MONTHS.charAt(month * 3)
+					&& buffer.get(start + 1) == MONTHS.charAt(month * 3 + 1)
+					&& buffer.get(start + 2) == MONTHS.charAt(month * 3 + 2)) {
+				return month + 1;
+			}
+		}
+		return -1;
+	}
+
+	private int digits(ByteBuffer buffer, int start, int count) {
+		int value = 0;
+		for (int i = start; i < start + count; i++) {
+			byte b = buffer.get(i);
+			if (b < '0' || b > '9') {
+				return -1;
+			}
+			value = value * 10 + (b - '0');
+		}
+		return value;
+	}
+}
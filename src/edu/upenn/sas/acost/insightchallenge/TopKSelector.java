@@ -0,0 +1,112 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * TopKSelector class: picks the k ids with the largest values out of a
+ * primitive value array without sorting all of them. The selector keeps
+ * a min-heap of at most k ids whose root is the worst id kept so far, so
+ * every other id costs one comparison against the root, and an id that
+ * beats it costs one O(log k) sift. Ties are broken by the symbol of the
+ * id, lexicographically smallest first. The symbols come from a
+ * SymbolTable, or from an array of names, such as a copy kept by a
+ * Ranking.
+ *
+ * Method Name - Description : Runtime
+ * select      - returns the best k ids, best first                   : O(n*logk), where n is the number of ids
+ * offer       - private helper that offers one id to the heap        : O(logk)
+ * better      - private helper that returns true if an id ranks      : O(1)
+ *               above another
+ * nameOf      - private helper that returns the symbol of an id      : O(1)
+ * siftDown    - private helper that restores the heap below a slot   : O(logk)
+ ******************************/
+
+class TopKSelector {
+	private long[] values;
+	private SymbolTable symbols;
+	private String[] names;
+	private int count;
+	private int[] heap;
+	private int size;
+
+	public TopKSelector(long[] values, SymbolTable symbols, int k) {
+		this.values = values;
+		this.symbols = symbols;
+		this.count = symbols.size();
+		this.heap = new int[Math.max(0, Math.min(k, count))];
+		this.size = 0;
+	}
+
+	public TopKSelector(long[] values, String[] names, int k) {
+		this.values = values;
+		this.names = names;
+		this.count = names.length;
+		this.heap = new int[Math.max(0, Math.min(k, count))];
+		this.size = 0;
+	}
+
+	public int[] select() {
+		for (int id = 0; id < count; id++) {
+			offer(id);
+		}
+		// Popping the worst id into the last free slot leaves the best first
+		int[] best = new int[size];
+		while (size > 0) {
+			best[size - 1] = heap[0];
+			heap[0] = heap[--size];
+			siftDown(0);
+		}
+		return best;
+	}
+
+	private void offer(int id) {
+		if (heap.length == 0) {
+			return;
+		}
+		if (size < heap.length) {
+			int slot = size++;
+			while (slot > 0) {
+				int parent = (slot - 1) / 2;
+				if (!better(heap[parent], id)) {
+					break;
+				}
+				heap[slot] = heap[parent];
+				slot = parent;
+			}
+			heap[slot] = id;
+		} else if (better(id, heap[0])) {
+			heap[0] = id;
+			siftDown(0);
+		}
+	}
+
+	private boolean better(int one, int two) {
+		if (values[one] != values[two]) {
+			return values[one] > values[two];
+		}
+		return nameOf(one).compareTo(nameOf(two)) < 0;
+	}
+
+	private String nameOf(int id) {
+		return names != null ? names[id] : symbols.getSymbol(id);
+	}
+
+	private void siftDown(int slot) {
+		int id = heap[slot];
+		while (true) {
+			int child = slot * 2 + 1;
+			if (child >= size) {
+				break;
+			}
+			if (child + 1 < size && better(heap[child], heap[child + 1])) {
+				child++;
+			}
+			if (!better(id, heap[child])) {
+				break;
+			}
+			heap[slot] = heap[child];
+			slot = child;
+		}
+		heap[slot] = id;
+	}
+}
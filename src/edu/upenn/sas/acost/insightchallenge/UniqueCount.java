@@ -0,0 +1,45 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * UniqueCount class: the estimated number of distinct hosts and distinct
+ * resources requested in one hour or one day of the log, with the epoch
+ * second that period starts at and the zone offset used to print it.
+ *
+ * Method Name   - Description : Runtime
+ * getStart      - gets the epoch second the period starts at       : O(1)
+ * getZoneOffset - gets the zone offset in seconds at the start     : O(1)
+ * getHosts      - gets the estimated number of distinct hosts      : O(1)
+ * getResources  - gets the estimated number of distinct resources  : O(1)
+ ******************************/
+
+class UniqueCount {
+	private long start;
+	private int zoneOffset;
+	private long hosts;
+	private long resources;
+
+	public UniqueCount(long start, int zoneOffset, long hosts, long resources) {
+		this.start = start;
+		this.zoneOffset = zoneOffset;
+		this.hosts = hosts;
+		this.resources = resources;
+	}
+
+	public long getStart() {
+		return start;
+	}
+
+	public int getZoneOffset() {
+		return zoneOffset;
+	}
+
+	public long getHosts() {
+		return hosts;
+	}
+
+	public long getResources() {
+		return resources;
+	}
+}
@@ -0,0 +1,149 @@
+package edu.upenn.sas.acost.insightchallenge;
+
+/******************************
+ *
+ * @author adamcostarino
+ * UniqueCountTracker class: estimates the number of distinct hosts and
+ * distinct resources in every hour and every day of the log. Each local
+ * clock hour that has requests gets two HyperLogLogs, one for hosts and
+ * one for resources, so a request costs one hash and one register update
+ * for each. Days are never counted directly: the sketches of the hours of
+ * a day are merged when the days are asked for, since the union of the
+ * hours is exactly the day. Memory is 2 * 2^p bytes per hour with
+ * requests, however many requests or distinct hosts it has.
+ *
+ * Hours and days follow the log's local time, so a day runs from 00:00
+ * to 24:00 in the zone the log was written in. Lines are expected in time
+ * order, so the hour of a request is almost always the last one; an
+ * older line is found by walking back.
+ *
+ * Method Name - Description : Runtime
+ * count       - counts the host and resource of one request        : O(s), where s is the length of both strings
+ * merge       - merges the tracker of the log directly following   : O(h*2^p), where h is the number of hours of the other tracker
+ *               this one
+ * getHours    - returns the estimates of every hour, in order      : O(h*2^p), where h is the number of hours
+ * getDays     - returns the estimates of every day, in order       : O(h*2^p)
+ * writeTo     - writes the hours and their sketches for a           : O(h*2^p)
+ *               Checkpoint
+ * readFrom    - adds the hours written by writeTo to an empty       : O(h*2^p)
+ *               tracker
+ * bucketOf    - private helper that returns the bucket of a local  : O(1) amortized
+ *               hour, adding it if it is new
+ ******************************/
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+class UniqueCountTracker {
+	private static final int HOUR = 3600;
+	private static final int HOURS_PER_DAY = 24;
+	private static final int DEFAULT_CAPACITY = 64;
+	private int precision;
+	// Local clock hour, zone offset and sketches of each bucket, in order
+	private long[] hours;
+	private int[] zones;
+	private HyperLogLog[] hostSketches;
+	private HyperLogLog[] resourceSketches;
+	private int size;
+
+	public UniqueCountTracker(int precision) {
+		this.precision = precision;
+		this.hours = new long[DEFAULT_CAPACITY];
+		this.zones = new int[DEFAULT_CAPACITY];
+		this.hostSketches = new HyperLogLog[DEFAULT_CAPACITY];
+		this.resourceSketches = new HyperLogLog[DEFAULT_CAPACITY];
+		this.size = 0;
+	}
+
+	public void count(long second, int zoneOffset, String host, String resource) {
+		int bucket = bucketOf(Math.floorDiv(second + zoneOffset, HOUR), zoneOffset);
+		hostSketches[bucket].add(host);
+		resourceSketches[bucket].add(resource);
+	}
+
+	public void merge(UniqueCountTracker next) {
+		for (int i = 0; i < next.size; i++) {
+			int bucket = bucketOf(next.hours[i], next.zones[i]);
+			hostSketches[bucket].merge(next.hostSketches[i]);
+			resourceSketches[bucket].merge(next.resourceSketches[i]);
+		}
+	}
+
+	public List<UniqueCount> getHours() {
+		List<UniqueCount> counts = new ArrayList<UniqueCount>(size);
+		for (int i = 0; i < size; i++) {
+			counts.add(new UniqueCount(hours[i] * HOUR - zones[i], zones[i],
+					hostSketches[i].estimate(), resourceSketches[i].estimate()));
+		}
+		return counts;
+	}
+
+	public List<UniqueCount> getDays() {
+		List<UniqueCount> counts = new ArrayList<UniqueCount>();
+		int i = 0;
+		while (i < size) {
+			long day = Math.floorDiv(hours[i], HOURS_PER_DAY);
+			int zone = zones[i];
+			HyperLogLog dayHosts = hostSketches[i].copy();
+			HyperLogLog dayResources = resourceSketches[i].copy();
+			for (i++; i < size && Math.floorDiv(hours[i], HOURS_PER_DAY) == day; i++) {
+				dayHosts.merge(hostSketches[i]);
+				dayResources.merge(resourceSketches[i]);
+			}
+			counts.add(new UniqueCount(day * HOURS_PER_DAY * HOUR - zone, zone,
+					dayHosts.estimate(), dayResources.estimate()));
+		}
+		return counts;
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(size);
+		for (int i = 0; i < size; i++) {
+			out.writeLong(hours[i]);
+			out.writeInt(zones[i]);
+			hostSketches[i].writeTo(out);
+			resourceSketches[i].writeTo(out);
+		}
+	}
+
+	public void readFrom(DataInput in) throws IOException {
+		int count = in.readInt();
+		for (int i = 0; i < count; i++) {
+			long hour = in.readLong();
+			int bucket = bucketOf(hour, in.readInt());
+			hostSketches[bucket].readFrom(in);
+			resourceSketches[bucket].readFrom(in);
+		}
+	}
+
+	private int bucketOf(long hour, int zoneOffset) {
+		int bucket = size;
+		while (bucket > 0 && hours[bucket - 1] > hour) {
+			bucket--;
+		}
+		if (bucket > 0 && hours[bucket - 1] == hour) {
+			return bucket - 1;
+		}
+		if (size == hours.length) {
+			hours = Arrays.copyOf(hours, size * 2);
+			zones = Arrays.copyOf(zones, size * 2);
+			hostSketches = Arrays.copyOf(hostSketches, size * 2);
+			resourceSketches = Arrays.copyOf(resourceSketches, size * 2);
+		}
+		// An hour older than the last one is put in its place
+		System.arraycopy(hours, bucket, hours, bucket + 1, size - bucket);
+		System.arraycopy(zones, bucket, zones, bucket + 1, size - bucket);
+		System.arraycopy(hostSketches, bucket, hostSketches, bucket + 1, size - bucket);
+		System.arraycopy(resourceSketches, bucket, resourceSketches, bucket + 1, size - bucket);
+		hours[bucket] = hour;
+		zones[bucket] = zoneOffset;
+		hostSketches[bucket] = new HyperLogLog(precision);
+		resourceSketches[bucket] = new HyperLogLog(precision);
+		size++;
+		return bucket;
+	}
+}
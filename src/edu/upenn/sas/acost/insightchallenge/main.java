@@ -5,121 +5,465 @@ package edu.upenn.sas.acost.insightchallenge;
  * @author adamcostarino
  * Main exectuable file: Reads in from log_input/log.txt and intializes the server.
  * 
+ * Options:
+ * --mmap       -  reads the log through MappedLogReader instead of
+ *                 a StreamLogReader
+ * --parallel[=N] - reads the log in chunks on N fork-join workers,
+ *                 N defaults to the number of processors
+ * --pipeline[=N] - reads, parses and logs the log in separate stages
+ *                 with N parser threads, N defaults to the number of
+ *                 processors minus two, at least one
+ * --sharded[=N] - routes each line by host to one of N shards, each
+ *                 parsing and logging its own hosts on its own thread,
+ *                 N defaults to the number of processors minus one, at
+ *                 least one. reads through MappedLogReader with --mmap
+ * --checkpoint=FILE - restores the aggregates saved in FILE by the last
+ *                 run, reads only the lines appended to the log since,
+ *                 and saves the aggregates back to FILE. reads with a
+ *                 single thread, and cannot be combined with --follow
+ *                 or --serve
+ * --convert=FILE - converts the log once into the columnar FILE, see
+ *                 ColumnarLogWriter, and writes no outputs
+ * --columnar=FILE - reads the rows of a columnar FILE written by
+ *                 --convert instead of parsing the log. the log must
+ *                 be the one converted, blocked.txt quotes its lines
+ * --bounded    -  accepted for older scripts. no run keeps a Request per
+ *                 line, memory follows the number of distinct hosts and
+ *                 resources
+ * --follow     -  keeps the log open, logs lines as they are appended
+ *                 and rewrites the outputs every --interval seconds
+ *                 (default 60) until the process is stopped
+ * --interval=S -  seconds between output refreshes in follow mode
+ * --serve[=PORT] - runs as a daemon that follows the log like --follow
+ *                 but writes no outputs besides blocked.txt, and answers
+ *                 queries for the top hosts, resources, busiest windows
+ *                 and blocked hosts over HTTP on localhost:PORT, default
+ *                 8080, see QueryServer. 0 picks a free port, which is
+ *                 printed when the server starts
+ * --publish=MS -  milliseconds between the snapshots queries are
+ *                 answered from, default 1000. each snapshot copies the
+ *                 count of every host and resource while the log waits,
+ *                 some 10 ms with millions of hosts, see Snapshot
+ * --poll=MS    -  milliseconds between checks for new lines in follow
+ *                 and serve mode, default 1000
+ * --top=K      -  number of hosts, resources and busiest hours to
+ *                 write, default 10
+ * --non-overlapping - writes only busiest hours that no overlapping hour
+ *                 beats, so each one is a separate peak
+ * --windows=M,... - window lengths in minutes for the busiest times,
+ *                 default 60. the 60 minute windows go to hours.txt,
+ *                 any other length M to windows_Mm.txt
+ * --approximate[=M] - counts hosts and resources with M counters each,
+ *                 default 1000, so memory does not grow with the number
+ *                 of distinct hosts and resources. hosts.txt and
+ *                 resources.txt then add the count and its error bound
+ *                 to every line: name,count,error, where the true count
+ *                 is between count - error and count
+ * --uniques[=P] -  writes the estimated number of distinct hosts and
+ *                 resources of every hour and every day to uniques.txt,
+ *                 counted by HyperLogLogs of 2^P registers, default 12.
+ *                 a higher P uses more memory for a smaller error.
+ *                 each line reads hour,start,hosts,resources or
+ *                 day,start,hosts,resources
+ * --metrics[=FILE] - times every stage and counts lines, bytes and
+ *                 malformed lines, see Metrics. the numbers can be read
+ *                 over JMX while running and are summed up in FILE at
+ *                 exit, default log_output/metrics.txt
+ * 
+ * blocked.txt is written by a BlockedLog while the log is read, a line as
+ * soon as its request is blocked, rather than with the other outputs. It
+ * is written in place rather than swapped in whole, at most about a second
+ * behind the log and once more when the process is stopped.
+ * 
  * Method Name  - Description : Runtime
- * lineParser   -  parses input string into usable data array   : O(1)
- * logHosts     -  writes top hosts to hosts.txt                : O(1)
- * logResources -  writes top resources to resources.txt        : O(1)
- * logHours     -  writes busiest hours to hours.txt
- * logBlocked   -  writes blocked login requests to blocked.txt : O(1)
+ * readLog      -  reads and parses every line of the log into the  : O(n)
+ *                 server, skipping malformed lines
+ * readLogParallel - reads the log with a ParallelLogProcessor       : O(n/p)
+ * readLogPipelined - reads the log with a PipelinedLogProcessor     : O(n/p)
+ * readLogSharded - reads the log with a ShardedLogProcessor         : O(n/p)
+ * readLogColumnar - reads the rows of a columnar log              : O(r), where r is the number of rows
+ * convertLog   -  converts the log into a columnar log              : O(n)
+ * readLogIncremental - reads the rest of the log after a restored    : O(b + s), where b is the number of new bytes
+ *                 Checkpoint and saves a new one                      and s the size of the saved state
+ * registerGauges - registers the sizes of the server as gauges     : O(1)
+ * reportMalformed - prints the number of skipped lines, if any      : O(1)
+ * follow       -  runs follow mode until the process is stopped    : O(b) per poll, where b is the number of new bytes
+ * serve        -  runs a QueryServer until the process is stopped  : O(b) per poll
+ * writeOutputs -  ranks, then writes every output file in parallel : O(k + w), where k is top and w the windows
+ *                 through an OutputStage, and flushes blocked.txt
+ * logHosts     -  writes top hosts to hosts.txt, with the error
+ *                 bounds if approximate                         : O(1)
+ * logResources -  writes top resources to resources.txt, with
+ *                 the bytes and error bounds if approximate     : O(1)
+ * logHours     -  writes the busiest windows of one length to
+ *                 hours.txt or windows_Mm.txt
+ * logUniques   -  writes the distinct hosts and resources per hour
+ *                 and per day to uniques.txt                    : O(h), where h is the number of hours
  ********************/
 
 import java.io.*;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map.Entry;
 
 class Main {
+    private static final String INPUT_PATH = "../log_input/log.txt";
+    private static final String OUTPUT_DIR = "../log_output/";
+    private static final int OUTPUT_THREADS = Runtime.getRuntime().availableProcessors();
+
     public static void main(String[] args) {
-    	Server server;
-    	try {
-        	server = new Server();
-    		FileInputStream fStream = new FileInputStream("../log_input/log.txt");
-    		DataInputStream dStream = new DataInputStream(fStream);
-    		BufferedReader reader = new BufferedReader(new InputStreamReader(dStream));
-    		String newline;
-    		while ((newline = reader.readLine()) != null)   {
-    			// Print the content on the console
-    			String[] params = lineParser(newline);
-    			Request requestParsed = new Request(params[1], params[2], params[3], 
-    					params[4], Integer.parseInt(params[5]), newline);
-    			server.logRequest(params[0], requestParsed);
-    		}
-    		//Close the input stream
-    		dStream.close();
-        	try {
-    			logHosts(server);
-    			logResources(server);
-    			logHours(server);
-    			logBlocked(server);
-    		} catch (IOException e) {
-    			e.printStackTrace();
+    	boolean mapped = false;
+    	int parallelism = 0;
+    	int parsers = 0;
+    	int shards = 0;
+    	boolean follow = false;
+    	long intervalMillis = 60000;
+    	long pollMillis = 1000;
+    	// -1 unless serving, 0 for any free port
+    	int port = -1;
+    	long publishMillis = 1000;
+    	int top = 10;
+    	boolean nonOverlapping = false;
+    	int[] windowLengths = {3600};
+    	int sketchCounters = 0;
+    	int uniquePrecision = 0;
+    	String checkpointPath = null;
+    	String convertPath = null;
+    	String columnarPath = null;
+    	String metricsPath = null;
+    	for (String arg : args) {
+    		if (arg.equals("--mmap")) {
+    			mapped = true;
+    		} else if (arg.equals("--parallel")) {
+    			parallelism = Runtime.getRuntime().availableProcessors();
+    		} else if (arg.startsWith("--parallel=")) {
+    			parallelism = Integer.parseInt(arg.substring("--parallel=".length()));
+    		} else if (arg.equals("--pipeline")) {
+    			parsers = Math.max(1, Runtime.getRuntime().availableProcessors() - 2);
+    		} else if (arg.startsWith("--pipeline=")) {
+    			parsers = Integer.parseInt(arg.substring("--pipeline=".length()));
+    		} else if (arg.equals("--sharded")) {
+    			shards = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    		} else if (arg.startsWith("--sharded=")) {
+    			shards = Integer.parseInt(arg.substring("--sharded=".length()));
+    		} else if (arg.startsWith("--checkpoint=")) {
+    			checkpointPath = arg.substring("--checkpoint=".length());
+    		} else if (arg.startsWith("--convert=")) {
+    			convertPath = arg.substring("--convert=".length());
+    		} else if (arg.startsWith("--columnar=")) {
+    			columnarPath = arg.substring("--columnar=".length());
+    		} else if (arg.equals("--metrics") || arg.startsWith("--metrics=")) {
+    			metricsPath = arg.equals("--metrics") ? OUTPUT_DIR + "metrics.txt" 
+    					: arg.substring("--metrics=".length());
+    			// Read once when Metrics is first used, which is after this
+    			System.setProperty(Metrics.PROPERTY, "true");
+    		} else if (arg.equals("--bounded")) {
+    			// Every run is bounded
+    		} else if (arg.equals("--follow")) {
+    			follow = true;
+    		} else if (arg.startsWith("--interval=")) {
+    			intervalMillis = 1000 * Long.parseLong(arg.substring("--interval=".length()));
+    		} else if (arg.equals("--serve")) {
+    			port = 8080;
+    		} else if (arg.startsWith("--serve=")) {
+    			port = Integer.parseInt(arg.substring("--serve=".length()));
+    		} else if (arg.startsWith("--publish=")) {
+    			publishMillis = Long.parseLong(arg.substring("--publish=".length()));
+    		} else if (arg.startsWith("--poll=")) {
+    			pollMillis = Long.parseLong(arg.substring("--poll=".length()));
+    		} else if (arg.startsWith("--top=")) {
+    			top = Integer.parseInt(arg.substring("--top=".length()));
+    		} else if (arg.equals("--non-overlapping")) {
+    			nonOverlapping = true;
+    		} else if (arg.startsWith("--windows=")) {
+    			String[] minutes = arg.substring("--windows=".length()).split(",");
+    			windowLengths = new int[minutes.length];
+    			for (int i = 0; i < minutes.length; i++) {
+    				windowLengths[i] = 60 * Integer.parseInt(minutes[i].trim());
+    			}
+    		} else if (arg.equals("--approximate")) {
+    			sketchCounters = 1000;
+    		} else if (arg.startsWith("--approximate=")) {
+    			sketchCounters = Integer.parseInt(arg.substring("--approximate=".length()));
+    		} else if (arg.equals("--uniques")) {
+    			uniquePrecision = 12;
+    		} else if (arg.startsWith("--uniques=")) {
+    			uniquePrecision = Integer.parseInt(arg.substring("--uniques=".length()));
     		}
+    	}
+    	if (checkpointPath != null && (follow || port >= 0)) {
+    		// They read the log from its start, so the restored lines would count twice
+    		System.err.println("Error: --checkpoint cannot be combined with --follow or --serve");
+    		return;
+    	}
+    	Server server = new Server(top, nonOverlapping, windowLengths, sketchCounters, uniquePrecision);
+    	if (metricsPath != null) {
+    		registerGauges(server);
+    		Metrics.install(metricsPath);
+    	}
+    	try {
+        	if (convertPath != null) {
+        		convertLog(convertPath);
+        		return;
+        	}
+        	Checkpoint checkpoint = null;
+        	long offset = 0;
+        	if (checkpointPath != null) {
+        		checkpoint = new Checkpoint(checkpointPath, INPUT_PATH);
+        		offset = checkpoint.restore(server);
+        	}
+        	try (BlockedLog blocked = new BlockedLog(OUTPUT_DIR + "blocked.txt", 
+        			checkpoint == null ? 0 : checkpoint.getBlockedLength())) {
+        		server.setBlockedSink(blocked);
+        		if (port >= 0) {
+        			serve(server, port, publishMillis, pollMillis);
+        			return;
+        		}
+        		if (follow) {
+        			follow(server, top, intervalMillis, pollMillis);
+        			return;
+        		}
+        		if (checkpoint != null) {
+        			readLogIncremental(server, checkpoint, offset, blocked);
+        		} else if (columnarPath != null) {
+        			readLogColumnar(server, columnarPath);
+        		} else if (parallelism > 0) {
+        			readLogParallel(server, parallelism);
+        		} else if (parsers > 0) {
+        			readLogPipelined(server, parsers);
+        		} else if (shards > 0) {
+        			readLogSharded(server, shards, mapped);
+        		} else {
+        			readLog(server, mapped);
+        		}
+        		try {
+        			writeOutputs(server, top);
+        		} catch (IOException e) {
+        			e.printStackTrace();
+        		}
+        	}
     	} catch (Exception e) {//Catch exception if any
     		e.printStackTrace();
     		System.err.println("Error: " + e.getMessage());
     	}
     }
 
-	public static String[] lineParser(String line) {
-    	line = line.replace(" ", "|");
-    	line = line.replace("[", "|");
-    	line = line.replace("]", "|");
-    	line = line.replace("-", "0");
-    	
-    	String[] s = line.split("\\|");
-    	String[] splice = new String[6];
-    	// Splice Structure - [host, date, command, address, HTTP return code, bytes]
-    	splice[0] = s[0];
-    	splice[1] = s[4];
-    	splice[2] = s[7].replace("\"", "");
-    	splice[3] = s[8].trim();
-    	splice[4] = s[10].trim();
-    	splice[5] = s[11].trim();
+    private static void readLog(Server server, boolean mapped) throws IOException {
+    	RequestLineHandler handler = new RequestLineHandler(server);
+    	if (mapped) {
+    		new MappedLogReader(INPUT_PATH).read(handler);
+    	} else {
+    		new StreamLogReader(INPUT_PATH).read(handler);
+    	}
+    	reportMalformed(handler.getMalformedLines());
+    }
+    
+    private static void readLogParallel(Server server, int parallelism) throws IOException {
+    	ParallelLogProcessor processor = new ParallelLogProcessor(INPUT_PATH, parallelism);
+    	processor.process(server);
+    	reportMalformed(processor.getMalformedLines());
+    }
+    
+    private static void readLogPipelined(Server server, int parsers) throws IOException {
+    	PipelinedLogProcessor processor = new PipelinedLogProcessor(INPUT_PATH, parsers);
+    	processor.process(server);
+    	reportMalformed(processor.getMalformedLines());
+    }
+    
+    private static void readLogSharded(Server server, int shards, boolean mapped) throws IOException {
+    	ShardedLogProcessor processor = new ShardedLogProcessor(INPUT_PATH, shards, mapped);
+    	processor.process(server);
+    	reportMalformed(processor.getMalformedLines());
+    }
+    
+    private static void readLogColumnar(Server server, String columnarPath) throws IOException {
+    	ColumnarLogReader reader = new ColumnarLogReader(columnarPath, INPUT_PATH);
+    	reader.read(server);
+    	reportMalformed(reader.getMalformedLines());
+    }
+    
+    private static void convertLog(String columnarPath) throws IOException {
+    	ColumnarLogWriter writer = new ColumnarLogWriter(INPUT_PATH, columnarPath);
+    	long rows = writer.convert();
+    	System.err.println("Converted " + rows + " lines to " + columnarPath);
+    	reportMalformed(writer.getMalformedLines());
+    }
+    
+    private static void readLogIncremental(Server server, Checkpoint checkpoint, long offset, 
+    		BlockedLog blocked) throws IOException {
+    	RequestLineHandler handler = new RequestLineHandler(server);
+    	LogFollower follower = new LogFollower(INPUT_PATH, handler, offset);
+    	try {
+    		follower.poll();
+    	} finally {
+    		follower.close();
+    	}
+    	// blocked.txt is complete before the checkpoint that covers it
+    	blocked.flush();
+    	checkpoint.save(server, follower.getPosition(), blocked.getLength());
+    	// A last line without its newline counts now but is left out of the
+    	// checkpoint, so the next run reads it again with whatever follows it
+    	follower.finish();
+    	reportMalformed(handler.getMalformedLines());
+    }
+    
+    private static void registerGauges(final Server server) {
+    	Metrics.gauge("hosts", new Metrics.Gauge() {
+    		public long value() {
+    			return server.getHostCount();
+    		}
+    	});
+    	Metrics.gauge("resources", new Metrics.Gauge() {
+    		public long value() {
+    			return server.getResourceCount();
+    		}
+    	});
+    	Metrics.gauge("login_hosts", new Metrics.Gauge() {
+    		public long value() {
+    			return server.getLoginDetector().size();
+    		}
+    	});
+    	Metrics.gauge("blocked", new Metrics.Gauge() {
+    		public long value() {
+    			return server.getBlockedSink().getCount();
+    		}
+    	});
+    }
+    
+    private static void reportMalformed(long malformedLines) {
+    	if (malformedLines > 0) {
+    		System.err.println("Skipped " + malformedLines + " malformed lines");
+    	}
+    }
+    
+    private static void follow(final Server server, final int top, long intervalMillis, long pollMillis) 
+    		throws IOException, InterruptedException {
+    	RequestLineHandler handler = new RequestLineHandler(server);
+    	LogFollower follower = new LogFollower(INPUT_PATH, handler);
+    	// Write the latest state once more when the process is stopped
+    	Runtime.getRuntime().addShutdownHook(new Thread() {
+    		public void run() {
+    			synchronized (server) {
+    				try {
+    					writeOutputs(server, top);
+    				} catch (IOException e) {
+    					e.printStackTrace();
+    				}
+    			}
+    		}
+    	});
+    	long nextOutput = System.currentTimeMillis() + intervalMillis;
+    	while (true) {
+    		synchronized (server) {
+    			follower.poll();
+    			if (System.currentTimeMillis() >= nextOutput) {
+    				writeOutputs(server, top);
+    				nextOutput = System.currentTimeMillis() + intervalMillis;
+    			}
+    		}
+    		Thread.sleep(pollMillis);
+    	}
+    }
+    
+    private static void serve(Server server, int port, long publishMillis, long pollMillis) 
+    		throws IOException, InterruptedException {
+    	QueryServer queries = new QueryServer(server, port, publishMillis);
+    	queries.start();
+    	System.err.println("Answering queries on http://localhost:" + queries.getPort() + "/");
+    	try {
+    		queries.ingest(INPUT_PATH, pollMillis);
+    	} finally {
+    		queries.stop();
+    	}
+    }
+    
+    private static void writeOutputs(final Server server, int top) throws IOException {
+    	// Rank first, on this thread: ranking the windows flushes the server
+    	long startTime = Metrics.now();
+    	final List<HeavyHitter> topUsers = server.getHeavyHosts(top);
+    	startTime = Metrics.RANK.recordSince(startTime);
+    	final List<HeavyHitter> topRequests = server.getHeavyResources(top);
+    	startTime = Metrics.RANK.recordSince(startTime);
+    	int[] windowLengths = server.getWindowLengths();
+    	List<List<BusyWindow>> topWindows = new ArrayList<List<BusyWindow>>();
+    	for (int windowSeconds : windowLengths) {
+    		topWindows.add(server.getBusiestWindows(windowSeconds));
+    		startTime = Metrics.RANK.recordSince(startTime);
+    	}
+    	final List<UniqueCount> hours = server.countsUniques() ? server.getUniqueHours() : null;
+    	final List<UniqueCount> days = server.countsUniques() ? server.getUniqueDays() : null;
+    	if (server.countsUniques()) {
+    		Metrics.RANK.recordSince(startTime);
+    	}
+    	final boolean approximate = server.isApproximate();
     	
-    	return splice;
+    	OutputStage stage = new OutputStage(OUTPUT_DIR, OUTPUT_THREADS);
+    	stage.add("hosts.txt", new OutputStage.Content() {
+    		public void writeTo(OutputFile out) throws IOException {
+    			logHosts(out, topUsers, approximate);
+    		}
+    	});
+    	stage.add("resources.txt", new OutputStage.Content() {
+    		public void writeTo(OutputFile out) throws IOException {
+    			logResources(out, topRequests, approximate);
+    		}
+    	});
+    	for (int i = 0; i < windowLengths.length; i++) {
+    		final List<BusyWindow> windows = topWindows.get(i);
+    		String name = windowLengths[i] == 3600 ? "hours.txt" : "windows_" + windowLengths[i] / 60 + "m.txt";
+    		stage.add(name, new OutputStage.Content() {
+    			public void writeTo(OutputFile out) throws IOException {
+    				logHours(out, windows);
+    			}
+    		});
+    	}
+    	if (hours != null) {
+    		stage.add("uniques.txt", new OutputStage.Content() {
+    			public void writeTo(OutputFile out) throws IOException {
+    				logUniques(out, hours, days);
+    			}
+    		});
+    	}
+    	stage.finish();
+    	server.getBlockedSink().flush();
     }
     
-    public static void logHosts(Server server) throws IOException {
-    	File fout = new File("../log_output/hosts.txt");
-    	fout.createNewFile();
-    	FileOutputStream fos = new FileOutputStream(fout);
-    	OutputStreamWriter osw = new OutputStreamWriter(fos);
-    	User[] topUsers = server.getTopTenUserNames();
-    	for (int i = 0; i < topUsers.length; i++) {
-    		osw.write(topUsers[i].getIP() + "," + topUsers[i].getRequests().size() + "\n");
+    static void logHosts(OutputFile out, List<HeavyHitter> topUsers, boolean approximate) throws IOException {
+    	for (HeavyHitter user : topUsers) {
+    		out.append(user.getKey()).append(',').append(user.getCount());
+    		if (approximate) {
+    			out.append(',').append(user.getError());
+    		}
+    		out.append('\n');
     	}
-    	osw.close();
     }
     
-    public static void logResources(Server server) throws IOException {
-    	File fout = new File("../log_output/resources.txt");
-    	fout.createNewFile();
-    	FileOutputStream fos = new FileOutputStream(fout);
-    	OutputStreamWriter osw = new OutputStreamWriter(fos);
-    	String[] topRequests = server.getTopTenRequests();
-    	for (int i = 0; i < topRequests.length; i++) {
-    		osw.write(topRequests[i] + "\n");
+    static void logResources(OutputFile out, List<HeavyHitter> topRequests, boolean approximate) 
+    		throws IOException {
+    	for (HeavyHitter resource : topRequests) {
+    		out.append(resource.getKey());
+    		if (approximate) {
+    			out.append(',').append(resource.getCount()).append(',').append(resource.getError());
+    		}
+    		out.append('\n');
     	}
-    	osw.close();
     }
     
-    private static void logHours(Server server) throws IOException{
-    	File fout = new File("../log_output/hours.txt");
-    	FileOutputStream fos = new FileOutputStream(fout);
-    	OutputStreamWriter osw = new OutputStreamWriter(fos);
-    	List<Entry<String, Integer>> topHours = server.ripQueueReturn();
-    	String date = server.getDateOfRequests();
-    	int max = 10;
-    	if (topHours.size() < 10) {
-    		max = topHours.size();
-    	}
-    	for (int i = 0; i < max; i++) {
-    		String time = topHours.get(i).getKey();
-    		int numRequests = topHours.get(i).getValue();
-    		osw.write(date + ":" + time + " -400" + "," + numRequests + "\n");
-    	}
-    	osw.close();
-		
-	}
+    private static void logHours(OutputFile out, List<BusyWindow> topHours) throws IOException {
+    	for (BusyWindow hour : topHours) {
+    		out.append(TimestampDecoder.format(hour.getStart(), hour.getZoneOffset())).append(',')
+    				.append(hour.getRequests()).append('\n');
+    	}
+    }
     
-    public static void logBlocked(Server server) throws IOException {
-    	File fout = new File("../log_output/blocked.txt");
-    	fout.createNewFile();
-    	FileOutputStream fos = new FileOutputStream(fout);
-    	OutputStreamWriter osw = new OutputStreamWriter(fos);
-    	List<Request> blocked = server.getBlockedRequests();
-    	for (int i = 0; i < blocked.size(); i++) {
-    		osw.write(blocked.get(i).getOriginalInput() + "\n");
-    	}
-    	osw.close();
-    }
-}
\ No newline at end of file
+    private static void logUniques(OutputFile out, List<UniqueCount> hours, List<UniqueCount> days) 
+    		throws IOException {
+    	for (UniqueCount hour : hours) {
+    		out.append("hour,").append(TimestampDecoder.format(hour.getStart(), hour.getZoneOffset()))
+    				.append(',').append(hour.getHosts()).append(',').append(hour.getResources()).append('\n');
+    	}
+    	for (UniqueCount day : days) {
+    		out.append("day,").append(TimestampDecoder.format(day.getStart(), day.getZoneOffset()))
+    				.append(',').append(day.getHosts()).append(',').append(day.getResources()).append('\n');
+    	}
+    }
+}